@@ -0,0 +1,67 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole {@link ContentionController#calculate} request that misses the
+ * response cache: splitting, parsing, evaluating, serializing and
+ * compressing. The HTTP stack is not involved; the load-test harness measures
+ * that.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ControllerBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1970, 1, 1);
+
+    /** Every date from 1970 up to about 2070 misses once per controller. */
+    private static final int DAYS = 36_500;
+
+    @Param({"SPARSE", "MIXED", "EVERY_SECOND"})
+    public Workload workload;
+
+    @Param({"10", "1000", "10000"})
+    public int lines;
+
+    private String expressions;
+
+    private ContentionController controller;
+
+    private int day;
+
+    @Setup
+    public void setUp() {
+        expressions = workload.text(lines);
+        controller = new ContentionController();
+        day = 0;
+    }
+
+    @Benchmark
+    public Response calculateMiss() {
+        if (day == DAYS) {
+            // Start over with an empty cache rather than hit.
+            controller = new ContentionController();
+            day = 0;
+        }
+        final var date = FIRST_DAY.plusDays(day++).toString();
+        return controller.calculate(
+                expressions, date, null, null, null, null, null, "gzip");
+    }
+}
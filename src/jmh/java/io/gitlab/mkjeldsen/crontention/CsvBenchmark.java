@@ -0,0 +1,82 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import io.gitlab.mkjeldsen.crontention.csv.ShittyCsv;
+import io.gitlab.mkjeldsen.crontention.csv.StreamingCsv;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing the fire-times of one evaluated day: built as a string, streamed
+ * as UTF-8, and compressed the way the response cache keeps it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvBenchmark {
+
+    private static final String[] CSV_HEADER = {
+        "key", "h", "m", "count", "expressions"
+    };
+
+    @Param({"SPARSE", "MIXED", "EVERY_SECOND"})
+    public Workload workload;
+
+    @Param({"10", "1000", "10000"})
+    public int lines;
+
+    private List<FireTime> fireTimes;
+
+    @Setup
+    public void setUp() {
+        final var aggregator =
+                ContentionAggregator.forUtcDate(LocalDate.of(2021, 3, 19));
+        aggregator.parseCronExpressions(workload.lines(lines));
+        fireTimes = aggregator.calculateFireTimes();
+    }
+
+    @Benchmark
+    public String shittyCsv() {
+        final var csv = new ShittyCsv(fireTimes.size() * 64);
+        csv.header(CSV_HEADER);
+        for (final var fireTime : fireTimes) {
+            csv.record(new ContentionCsvRecordWriter(fireTime));
+        }
+        return csv.toString();
+    }
+
+    @Benchmark
+    public void streamingCsv() throws IOException {
+        final var csv = new StreamingCsv(OutputStream.nullOutputStream());
+        writeFireTimes(csv);
+        csv.flush();
+    }
+
+    @Benchmark
+    public CompressedCsv compressedCsv() {
+        return CompressedCsv.of(this::writeFireTimes);
+    }
+
+    private void writeFireTimes(final StreamingCsv csv) {
+        csv.header(CSV_HEADER);
+        for (final var fireTime : fireTimes) {
+            csv.record(new ContentionCsvRecordWriter(fireTime));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating an already parsed crontab for one day, with and without the day
+ * patterns of its expressions cached from an earlier request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FireTimesBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2021, 3, 19);
+
+    @Param({"SPARSE", "MIXED", "EVERY_SECOND"})
+    public Workload workload;
+
+    @Param({"10", "1000", "10000"})
+    public int lines;
+
+    private ContentionAggregator aggregator;
+
+    private DayPatternCache patterns;
+
+    @Setup
+    public void setUp() {
+        aggregator = ContentionAggregator.forUtcDate(DATE);
+        aggregator.parseCronExpressions(workload.lines(lines));
+        if (!aggregator.errors.isEmpty()) {
+            throw new IllegalStateException(aggregator.errors.toString());
+        }
+        patterns = new DayPatternCache(50_000);
+        aggregator.calculateFireTimes(patterns);
+    }
+
+    @Benchmark
+    public List<FireTime> calculateFireTimes() {
+        return aggregator.calculateFireTimes();
+    }
+
+    @Benchmark
+    public List<FireTime> calculateFireTimesCachedPatterns() {
+        return aggregator.calculateFireTimes(patterns);
+    }
+
+    @Benchmark
+    public List<List<FireTime>> calculateRollups() {
+        return aggregator.calculateRollups(patterns, BucketSelection.ALL);
+    }
+
+    @Benchmark
+    public int[] calculateSecondCounts() {
+        return aggregator.calculateSecondCounts();
+    }
+}
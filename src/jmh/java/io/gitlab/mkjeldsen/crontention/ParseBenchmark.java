@@ -0,0 +1,55 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parsing a whole crontab, line by line, without evaluating it. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"SPARSE", "MIXED", "EVERY_SECOND"})
+    public Workload workload;
+
+    @Param({"100", "10000"})
+    public int lines;
+
+    private List<String> crontab;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        crontab = workload.lines(lines);
+        text = workload.text(lines);
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) throws ParseException {
+        for (final var line : crontab) {
+            blackhole.consume(ExpressionInput.parse(line));
+        }
+    }
+
+    @Benchmark
+    public List<String> splitLines() {
+        return ContentionAggregator.splitLines(text);
+    }
+}
@@ -0,0 +1,82 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The shapes of crontab the benchmarks evaluate. Lines are generated from a
+ * fixed seed so every run measures the same input.
+ */
+public enum Workload {
+
+    /** Jobs that run once a day, at a random minute. */
+    SPARSE {
+        @Override
+        String line(final Random random, final int i) {
+            return "0 "
+                    + random.nextInt(60)
+                    + ' '
+                    + random.nextInt(24)
+                    + " * * ? daily-job-"
+                    + i;
+        }
+    },
+
+    /**
+     * What a real crontab looks like: mostly daily and hourly jobs, some
+     * every few minutes or on weekdays only, and a few with durations.
+     */
+    MIXED {
+        @Override
+        String line(final Random random, final int i) {
+            final int minute = random.nextInt(60);
+            final int hour = random.nextInt(24);
+            switch (random.nextInt(8)) {
+                case 0:
+                case 1:
+                case 2:
+                    return "0 " + minute + ' ' + hour + " * * ? daily-" + i;
+                case 3:
+                case 4:
+                    return "0 " + minute + " * * * ? hourly-" + i;
+                case 5:
+                    return "0 0/" + (1 + random.nextInt(15)) + " * * * ? poll-"
+                            + i;
+                case 6:
+                    return "0 " + minute + ' ' + hour + " ? * MON-FRI report-"
+                            + i + " @" + (1 + random.nextInt(30)) + 'm';
+                default:
+                    return random.nextInt(60) + " " + minute + ' '
+                            + (hour % 6) + "/6 L * ? batch-" + i + " @90s";
+            }
+        }
+    },
+
+    /** Every line fires every second of the day. */
+    EVERY_SECOND {
+        @Override
+        String line(final Random random, final int i) {
+            return "* * * * * ? worker-" + i;
+        }
+    };
+
+    private static final long SEED = 0x636f6e74L;
+
+    abstract String line(Random random, int i);
+
+    /** {@code count} lines of this shape. */
+    List<String> lines(final int count) {
+        final var random = new Random(SEED);
+        final var lines = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            lines.add(line(random, i));
+        }
+        return lines;
+    }
+
+    /** {@link #lines(int)} as one request body. */
+    String text(final int count) {
+        return String.join("\n", lines(count));
+    }
+}
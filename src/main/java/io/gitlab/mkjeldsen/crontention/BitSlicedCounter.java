@@ -0,0 +1,81 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.util.Arrays;
+
+/**
+ * A count for every minute of one day, stored as bit-slices: slice {@code k}
+ * is a 1,440-bit mask holding bit {@code k} of every minute's count. Adding a
+ * {@link DayPattern} mask then takes a few word-wide operations per slice its
+ * carries reach, instead of one increment per minute the pattern fires in. As
+ * with incrementing a binary counter, carries rarely travel far, so a mask
+ * costs about the same however densely it fires. Counts are extracted once,
+ * when the day is materialized.
+ */
+final class BitSlicedCounter {
+
+    private static final int WORDS = DayPattern.WORDS;
+
+    /** Word {@code w} of slice {@code k} is at {@code k * WORDS + w}. */
+    private long[] slices;
+
+    private int levels;
+
+    BitSlicedCounter() {
+        this.slices = new long[0];
+    }
+
+    /** Adds {@code weight} to the count of every minute set in {@code mask}. */
+    void add(final long[] mask, final int weight) {
+        for (int bits = weight; bits != 0; bits &= bits - 1) {
+            addAt(mask, Integer.numberOfTrailingZeros(bits));
+        }
+    }
+
+    /** Adds every count of {@code other} to this counter. */
+    void add(final BitSlicedCounter other) {
+        final var mask = new long[WORDS];
+        for (int k = 0; k < other.levels; ++k) {
+            System.arraycopy(other.slices, k * WORDS, mask, 0, WORDS);
+            addAt(mask, k);
+        }
+    }
+
+    /** Adds the count of every minute to the same minute of {@code counts}. */
+    void addTo(final int[] counts) {
+        for (int k = 0; k < levels; ++k) {
+            final int weight = 1 << k;
+            for (int w = 0; w < WORDS; ++w) {
+                final int offset = w * Long.SIZE;
+                long word = slices[k * WORDS + w];
+                while (word != 0) {
+                    counts[offset + Long.numberOfTrailingZeros(word)] += weight;
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /** Adds {@code mask} to the slice of weight {@code 2^level}. */
+    private void addAt(final long[] mask, final int level) {
+        if (level > levels) {
+            grow(level);
+        }
+        for (int w = 0; w < WORDS; ++w) {
+            long carry = mask[w];
+            for (int k = level; carry != 0; ++k) {
+                if (k == levels) {
+                    grow(k + 1);
+                }
+                final int i = k * WORDS + w;
+                final long slice = slices[i];
+                slices[i] = slice ^ carry;
+                carry &= slice;
+            }
+        }
+    }
+
+    private void grow(final int newLevels) {
+        levels = newLevels;
+        slices = Arrays.copyOf(slices, newLevels * WORDS);
+    }
+}
@@ -0,0 +1,144 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.util.Arrays;
+
+/**
+ * Picks which buckets of a day to report: those with at least {@code
+ * threshold} fire-times and, of those, only the {@code top} busiest. Buckets
+ * are selected by their counts alone, before anything else about them is
+ * materialized, so a dashboard that wants the few hottest minutes does not pay
+ * for the expression lists of all the others.
+ *
+ * <p>The top buckets are found with a bounded heap of {@code top} entries, in
+ * one pass over the buckets. Of buckets with equal counts the earlier ones are
+ * preferred. Selected buckets are reported in time order.
+ */
+public final class BucketSelection {
+
+    /** Selects every bucket with a fire-time. */
+    public static final BucketSelection ALL = new BucketSelection(0, 1);
+
+    /** The most buckets to select, or {@code 0} for no limit. */
+    private final int top;
+
+    private final int threshold;
+
+    private BucketSelection(final int top, final int threshold) {
+        this.top = top;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Selects up to {@code top} buckets, or every bucket if it is {@code 0},
+     * of those with at least {@code threshold} fire-times. Empty buckets are
+     * never selected.
+     */
+    public static BucketSelection of(final int top, final int threshold) {
+        if (top < 0) {
+            throw new IllegalArgumentException("top < 0: " + top);
+        }
+        return top == 0 && threshold <= 1
+                ? ALL
+                : new BucketSelection(top, Math.max(1, threshold));
+    }
+
+    /** The indices of the selected buckets of {@code counts}, ascending. */
+    int[] select(final int[] counts) {
+        if (top == 0) {
+            final var selected = new int[counts.length];
+            int size = 0;
+            for (int bucket = 0; bucket < counts.length; ++bucket) {
+                if (counts[bucket] >= threshold) {
+                    selected[size++] = bucket;
+                }
+            }
+            return Arrays.copyOf(selected, size);
+        }
+
+        // A min-heap of the best buckets so far; the root is the worst of
+        // them, and the first to go when a better bucket turns up. It never
+        // needs more room than there are buckets.
+        final int capacity = Math.min(top, counts.length);
+        final var heap = new int[capacity];
+        int size = 0;
+        for (int bucket = 0; bucket < counts.length; ++bucket) {
+            if (counts[bucket] < threshold) {
+                continue;
+            }
+            if (size < capacity) {
+                heap[size] = bucket;
+                siftUp(heap, size++, counts);
+            } else if (counts[bucket] > counts[heap[0]]) {
+                heap[0] = bucket;
+                siftDown(heap, size, counts);
+            }
+        }
+        final var selected = Arrays.copyOf(heap, size);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    /** Zeroes every bucket of {@code counts} that is not selected. */
+    void retain(final int[] counts) {
+        if (this == ALL) {
+            return;
+        }
+        final var selected = select(counts);
+        int next = 0;
+        for (int bucket = 0; bucket < counts.length; ++bucket) {
+            if (next < selected.length && selected[next] == bucket) {
+                ++next;
+            } else {
+                counts[bucket] = 0;
+            }
+        }
+    }
+
+    /** Whether bucket {@code a} is to be evicted before bucket {@code b}. */
+    private static boolean worse(final int a, final int b, final int[] counts) {
+        return counts[a] < counts[b] || (counts[a] == counts[b] && a > b);
+    }
+
+    private static void siftUp(
+            final int[] heap, final int start, final int[] counts) {
+        int i = start;
+        final int bucket = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!worse(bucket, heap[parent], counts)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = bucket;
+    }
+
+    private static void siftDown(
+            final int[] heap, final int size, final int[] counts) {
+        final int bucket = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size
+                    && worse(heap[child + 1], heap[child], counts)) {
+                ++child;
+            }
+            if (!worse(heap[child], bucket, counts)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = bucket;
+    }
+
+    /** Identifies this selection in cache keys. */
+    @Override
+    public String toString() {
+        return "top=" + top + ",threshold=" + threshold;
+    }
+}
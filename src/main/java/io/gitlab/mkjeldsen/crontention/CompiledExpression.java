@@ -0,0 +1,138 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.text.ParseException;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+import org.quartz.CronExpression;
+import org.wildfly.common.annotation.Nullable;
+
+/**
+ * The outcome of compiling one cron expression, shared by every request that
+ * uses the same expression text. Most requests reuse a few hundred distinct
+ * expressions so parsing them once saves most of the work of every cache miss.
+ *
+ * <p>A Quartz {@link CronExpression} is mutable so it is never shared. The
+ * cache holds the immutable {@link CronSchedule} instead, or, for expressions
+ * it does not support, only the knowledge that Quartz accepts them. Parse
+ * failures are cached too, as the same broken line tends to be submitted
+ * repeatedly while somebody fixes another one.
+ */
+final class CompiledExpression {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone(ZoneOffset.UTC);
+
+    /** The approximate retained size of a string apart from its text. */
+    private static final int STRING_WEIGHT = 40;
+
+    /**
+     * The approximate retained size of a {@link CronSchedule}, whose fields
+     * take about 80 bytes and whose year mask takes about 64.
+     */
+    private static final int SCHEDULE_WEIGHT = 160;
+
+    /** The approximate retained size of a {@link MinuteProgression}. */
+    private static final int PROGRESSION_WEIGHT = 32;
+
+    /** The approximate retained size of this apart from what it refers to. */
+    private static final int OWN_WEIGHT = 32;
+
+    /**
+     * The approximate retained size in bytes of an entry apart from its text:
+     * the key string, the compiled schedule and its progression, and this.
+     */
+    static final int WEIGHT =
+            STRING_WEIGHT + SCHEDULE_WEIGHT + PROGRESSION_WEIGHT + OWN_WEIGHT;
+
+    /**
+     * Bounds the cache by the total size of its entries rather than their
+     * number. Keys are lines as submitted, failures included, of any length,
+     * so a count alone does not bound memory.
+     */
+    static final long MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static final Cache<String, CompiledExpression> CACHE =
+            Caffeine.newBuilder()
+                    .maximumWeight(MAX_CACHE_BYTES)
+                    .weigher(
+                            (String k, CompiledExpression v) -> v.weight(k))
+                    .build();
+
+    /** The compiled schedule, or {@code null} if Quartz must be used. */
+    @Nullable
+    final CronSchedule schedule;
+
+    /** The intra-day shape of {@link #schedule}, if it is a progression. */
+    @Nullable
+    final MinuteProgression progression;
+
+    @Nullable
+    private final String failure;
+
+    private final int failureOffset;
+
+    private CompiledExpression(
+            @Nullable final CronSchedule schedule,
+            @Nullable final String failure,
+            final int failureOffset) {
+        this.schedule = schedule;
+        this.progression = schedule == null ? null : schedule.progression();
+        this.failure = failure;
+        this.failureOffset = failureOffset;
+    }
+
+    /**
+     * Compiles {@code expression} or reuses the outcome of a previous
+     * compilation of the same text.
+     *
+     * @throws ParseException if Quartz does not accept {@code expression}.
+     */
+    static CompiledExpression of(final String expression)
+            throws ParseException {
+        final var compiled = CACHE.get(expression, CompiledExpression::compile);
+        if (compiled.failure != null) {
+            // Fresh exception every time; stack traces are not shareable.
+            throw new ParseException(compiled.failure, compiled.failureOffset);
+        }
+        return compiled;
+    }
+
+    /** The approximate retained size in bytes of this, keyed by {@code key}. */
+    private int weight(final String key) {
+        // Mostly Latin-1, one byte per character.
+        final long text =
+                (long) key.length() + (failure == null ? 0 : failure.length());
+        return (int) Math.min(Integer.MAX_VALUE, WEIGHT + text);
+    }
+
+    /**
+     * Constructs a new Quartz {@code CronExpression} in UTC from an expression
+     * already known to be valid.
+     */
+    static CronExpression toCron(final String expression) {
+        try {
+            return newCron(expression);
+        } catch (final ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CompiledExpression compile(final String expression) {
+        try {
+            newCron(expression);
+        } catch (final ParseException e) {
+            return new CompiledExpression(
+                    null, e.getMessage(), e.getErrorOffset());
+        }
+        return new CompiledExpression(
+                CronSchedule.compile(expression), null, 0);
+    }
+
+    private static CronExpression newCron(final String expr)
+            throws ParseException {
+        final var cron = new CronExpression(expr);
+        cron.setTimeZone(UTC);
+        return cron;
+    }
+}
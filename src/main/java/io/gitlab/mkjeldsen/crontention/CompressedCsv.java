@@ -0,0 +1,58 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import io.gitlab.mkjeldsen.crontention.csv.StreamingCsv;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A CSV response body kept gzip-encoded. It is compressed once, when cached,
+ * and then sent as-is to every client that accepts gzip, which is nearly all
+ * of them. The identity form is decoded on demand for the rest instead of
+ * being kept alongside, so an entry costs only its compressed size.
+ */
+final class CompressedCsv {
+
+    private final byte[] gzip;
+
+    private CompressedCsv(final byte[] gzip) {
+        this.gzip = gzip;
+    }
+
+    /** Compresses everything {@code body} writes. */
+    static CompressedCsv of(final Consumer<StreamingCsv> body) {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new GZIPOutputStream(bytes)) {
+            final var csv = new StreamingCsv(out);
+            body.accept(csv);
+            csv.flush();
+        } catch (final IOException e) {
+            // Not possible, in memory.
+            throw new UncheckedIOException(e);
+        }
+        return new CompressedCsv(bytes.toByteArray());
+    }
+
+    /** The gzip-encoded body. Callers must not modify it. */
+    byte[] gzip() {
+        return gzip;
+    }
+
+    /** The number of compressed bytes held. */
+    int size() {
+        return gzip.length;
+    }
+
+    /** Decodes the body into {@code out}. */
+    void writeIdentityTo(final OutputStream out) throws IOException {
+        final var bytes = new ByteArrayInputStream(gzip);
+        try (final var in = new GZIPInputStream(bytes)) {
+            in.transferTo(out);
+        }
+    }
+}
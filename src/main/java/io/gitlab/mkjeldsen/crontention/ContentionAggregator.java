@@ -1,5 +1,7 @@
 package io.gitlab.mkjeldsen.crontention;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -7,55 +9,90 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import org.quartz.CronExpression;
 import org.wildfly.common.annotation.Nullable;
 
 public final class ContentionAggregator {
 
+    /**
+     * Below this many distinct schedules, evaluation stays on the calling
+     * thread. It is also the most schedules one fork-join task evaluates by
+     * itself.
+     */
+    static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * The most distinct day histograms a range evaluation keeps for reuse.
+     * Real schedules select few distinct sets of expressions across a range,
+     * typically a handful of weekday and month-end combinations.
+     */
+    static final int MAX_SHARED_HISTOGRAMS = 32;
+
+    /**
+     * The window sizes in minutes of {@link #calculateRollups}, from the
+     * finest to the coarsest.
+     */
+    public static final List<Integer> ROLLUP_MINUTES = List.of(1, 5, 15, 60);
+
     public final List<ExpressionErrorDetail> errors;
 
     private final List<ExpressionInput> inputs;
 
     private final Instant periodStart;
 
-    private final Instant periodEnd;
+    private final LocalDate periodDate;
 
-    private ContentionAggregator(
-            final Instant periodStart, final Instant periodEnd) {
-        this.periodStart = periodStart;
-        this.periodEnd = periodEnd;
+    private ContentionAggregator(final LocalDate periodDate) {
+        this.periodStart = startOfDay(periodDate);
+        this.periodDate = periodDate;
         this.errors = new ArrayList<>();
         this.inputs = new ArrayList<>();
     }
 
     public static ContentionAggregator forUtcDate(@Nullable final String date)
             throws DateFieldValueException {
-        // Start-of-day until tomorrow. ZonedDate is semantically more
-        // appropriate but doesn't have easy j.u.Date conversion, which we need.
-        final Instant periodStart;
+        return forUtcDate(resolveUtcDate(date));
+    }
+
+    public static ContentionAggregator forUtcDate(final LocalDate date) {
+        return new ContentionAggregator(date);
+    }
+
+    private static Instant startOfDay(final LocalDate date) {
+        // ZonedDate is semantically more appropriate but doesn't have easy
+        // j.u.Date conversion, which we need.
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
 
+    /**
+     * Resolves the date field of a request to the UTC date it denotes. Missing,
+     * blank and {@code "today"} all mean the current date.
+     */
+    public static LocalDate resolveUtcDate(@Nullable final String date)
+            throws DateFieldValueException {
         final String strippedDate;
         if (date == null
                 || (strippedDate = date.strip()).isEmpty()
                 || "today".equalsIgnoreCase(strippedDate)) {
-            periodStart = Instant.now().truncatedTo(ChronoUnit.DAYS);
-        } else {
-            try {
-                final var requestedDate = LocalDate.parse(strippedDate);
-                ensureQuartzCompatibleDate(requestedDate);
-                periodStart =
-                        requestedDate.atStartOfDay(ZoneOffset.UTC).toInstant();
-            } catch (final DateTimeParseException e) {
-                throw new DateFieldValueException(e);
-            }
+            return LocalDate.now(ZoneOffset.UTC);
+        }
+        try {
+            final var requestedDate = LocalDate.parse(strippedDate);
+            ensureQuartzCompatibleDate(requestedDate);
+            return requestedDate;
+        } catch (final DateTimeParseException e) {
+            throw new DateFieldValueException(e);
         }
-        final var periodEnd = periodStart.plus(1, ChronoUnit.DAYS);
-
-        return new ContentionAggregator(periodStart, periodEnd);
     }
 
     private static void ensureQuartzCompatibleDate(final LocalDate date)
@@ -72,12 +109,16 @@ public final class ContentionAggregator {
     }
 
     public void parseCronExpressions(final String expressions) {
-        final var exprs = expressions.split("\n");
+        parseCronExpressions(splitLines(expressions));
+    }
+
+    /** Parses lines already split like {@link #splitLines(String)} does. */
+    public void parseCronExpressions(final List<String> exprs) {
         // List, not Set. Duplicate expressions are expected; the whole point is
         // that
         // 1) any two expressions can contend for the same slot, and
         // 2) expressions are defined independently and without context.
-        final var inputs = new ArrayList<ExpressionInput>(exprs.length);
+        final var inputs = new ArrayList<ExpressionInput>(exprs.size());
         for (final var expr : exprs) {
             try {
                 inputs.add(ExpressionInput.parse(expr));
@@ -88,23 +129,442 @@ public final class ContentionAggregator {
         this.inputs.addAll(inputs);
     }
 
-    public Collection<FireTime> calculateFireTimes() {
-        final var fireTimes = new HashMap<Instant, FireTime>();
+    /**
+     * Parses every line {@code reader} reads, one line at a time. Only the
+     * parsed inputs are kept, never the whole text. Empty lines at the end are
+     * ignored, as they are by {@link #splitLines(String)}.
+     */
+    public void parseCronExpressions(final BufferedReader reader)
+            throws IOException {
+        int emptyLines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                // Only an error if another line follows.
+                ++emptyLines;
+                continue;
+            }
+            for (; emptyLines > 0; --emptyLines) {
+                parseCronExpression("");
+            }
+            parseCronExpression(line);
+        }
+    }
+
+    private void parseCronExpression(final String expr) {
+        try {
+            this.inputs.add(ExpressionInput.parse(expr));
+        } catch (final ParseException e) {
+            this.errors.add(new ExpressionErrorDetail(expr, e));
+        }
+    }
+
+    /**
+     * Splits {@code expressions} into lines, tolerating CRLF. Lines keep their
+     * text otherwise, because responses report each line as it was given and
+     * clients look results up by it. Lines that differ only in whitespace
+     * still share the evaluation of their schedule. An empty input has no
+     * lines.
+     */
+    public static List<String> splitLines(final String expressions) {
+        if (expressions.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(expressions.split("\r?\n"));
+    }
+
+    public List<FireTime> calculateFireTimes() {
+        return calculateFireTimes(null);
+    }
+
+    /**
+     * Calculates fire-times like {@link #calculateFireTimes()} but looks up
+     * the day pattern of each expression in {@code patterns} first.
+     */
+    public List<FireTime> calculateFireTimes(
+            @Nullable final DayPatternCache patterns) {
+        return calculateFireTimes(patterns, BucketSelection.ALL);
+    }
+
+    /**
+     * Calculates fire-times like {@link #calculateFireTimes(DayPatternCache)}
+     * but only of the minutes {@code selection} selects.
+     */
+    public List<FireTime> calculateFireTimes(
+            @Nullable final DayPatternCache patterns,
+            final BucketSelection selection) {
+        final var dictionary = new ArrayList<String>();
+        final var groups = groupBySchedule(dictionary);
+
+        final var result = evaluate(groups, periodDate, patterns);
+        this.errors.addAll(result.errors);
+        return result.histogram.toFireTimes(periodStart, dictionary, selection);
+    }
+
+    /**
+     * Calculates fire-times like {@link #calculateFireTimes(DayPatternCache,
+     * BucketSelection)} rolled up into windows of each of {@link
+     * #ROLLUP_MINUTES} minutes at once, for zooming out without evaluating the
+     * day again. {@code selection} picks windows on each level by itself.
+     *
+     * @return the fire-times of each window size, in the order of {@link
+     *     #ROLLUP_MINUTES}.
+     */
+    public List<List<FireTime>> calculateRollups(
+            @Nullable final DayPatternCache patterns,
+            final BucketSelection selection) {
+        final var dictionary = new ArrayList<String>();
+        final var groups = groupBySchedule(dictionary);
+
+        final var result = evaluate(groups, periodDate, patterns);
+        this.errors.addAll(result.errors);
+        final var windows =
+                ROLLUP_MINUTES.stream().mapToInt(Integer::intValue).toArray();
+        return result.histogram.toRollups(
+                periodStart, dictionary, windows, selection);
+    }
+
+    /**
+     * Counts the fire-times in every second of the day, indexed by second of
+     * the day, for finding jobs that start in the very same second. Unlike
+     * {@link #calculateFireTimes()} this does not track which inputs fire when,
+     * only how many.
+     */
+    public int[] calculateSecondCounts() {
+        final var counts = new int[CronSchedule.SECONDS_PER_DAY];
+        for (final var group : groupBySchedule(new ArrayList<>())) {
+            final int multiplicity = group.inputs.size();
+            final IntConsumer count = second -> counts[second] += multiplicity;
+            try {
+                forEachSecondOfDay(group, periodDate, count);
+            } catch (final RuntimeException e) {
+                for (final var failed : group.inputs) {
+                    this.errors.add(new ExpressionErrorDetail(failed, e));
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the jobs running in every second of the day, indexed by second of
+     * the day. A job runs for the {@linkplain ExpressionInput#durationSeconds
+     * duration} of its line from every fire-time, or for just the second it
+     * fires in if the line has none. Runs that started the day before and
+     * cross midnight are included.
+     *
+     * <p>Every run adds one to where it starts and subtracts one from where it
+     * ends, and a single prefix sum turns that into counts. A run costs the
+     * same however long it is.
+     */
+    public int[] calculateRunningCounts() {
+        final int day = CronSchedule.SECONDS_PER_DAY;
+        final var deltas = new int[day + 1];
+        final var previousDate = periodDate.minusDays(1);
+        for (final var group : groupBySchedule(new ArrayList<>())) {
+            final var durations = Durations.of(group.inputs);
+            try {
+                forEachSecondOfDay(
+                        group,
+                        periodDate,
+                        second -> {
+                            for (int i = 0; i < durations.size; ++i) {
+                                final int n = durations.multiplicities[i];
+                                final int end = second + durations.seconds[i];
+                                deltas[second] += n;
+                                deltas[Math.min(end, day)] -= n;
+                            }
+                        });
+                if (durations.longest > 1) {
+                    forEachSecondOfDay(
+                            group,
+                            previousDate,
+                            second -> {
+                                for (int i = 0; i < durations.size; ++i) {
+                                    final int n = durations.multiplicities[i];
+                                    final int end =
+                                            second + durations.seconds[i] - day;
+                                    if (end > 0) {
+                                        deltas[0] += n;
+                                        deltas[end] -= n;
+                                    }
+                                }
+                            });
+                }
+            } catch (final RuntimeException e) {
+                for (final var failed : group.inputs) {
+                    this.errors.add(new ExpressionErrorDetail(failed, e));
+                }
+            }
+        }
+
+        final var running = new int[day];
+        int count = 0;
+        for (int second = 0; second < day; ++second) {
+            count += deltas[second];
+            running[second] = count;
+        }
+        return running;
+    }
+
+    /**
+     * The most jobs running at once in every minute of the day, indexed by
+     * minute of the day, as counted by {@link #calculateRunningCounts()}.
+     */
+    public int[] calculatePeakConcurrency() {
+        final var running = calculateRunningCounts();
+        final var peaks = new int[CronSchedule.MINUTES_PER_DAY];
+        for (int second = 0; second < running.length; ++second) {
+            final int minute = second / 60;
+            peaks[minute] = Math.max(peaks[minute], running[second]);
+        }
+        return peaks;
+    }
+
+    /**
+     * Calculates the fire-times of every day from this aggregator's date
+     * through {@code last}, inclusive. Each day is handed to {@code consumer}
+     * before the next one is evaluated, so only one day is held at a time.
+     * Stops before the first day that fails to evaluate, leaving the cause in
+     * {@link #errors}.
+     *
+     * <p>The date fields of a compiled schedule only decide whether its
+     * intra-day pattern applies on a day, so each day first works out which
+     * schedules fire on it. Days that select the same schedules share one
+     * histogram, making a long range cost little more than checking every
+     * schedule against every day. Expressions only Quartz understands are
+     * still enumerated day by day.
+     */
+    public void calculateDailyFireTimes(
+            final LocalDate last,
+            final BiConsumer<LocalDate, List<FireTime>> consumer) {
+        final var dictionary = new ArrayList<String>();
+        final var compiled = new ArrayList<ScheduleGroup>();
+        final var quartz = new ArrayList<ScheduleGroup>();
+        for (final var group : groupBySchedule(dictionary)) {
+            if (group.representative.schedule == null) {
+                quartz.add(group);
+            } else {
+                compiled.add(group);
+            }
+        }
+
+        final var shared = new HashMap<BitSet, MinuteHistogram>();
+        var date = periodDate;
+        while (!date.isAfter(last)) {
+            final var eligible = new BitSet(compiled.size());
+            for (int i = 0; i < compiled.size(); ++i) {
+                if (compiled.get(i).firesOn(date)) {
+                    eligible.set(i);
+                }
+            }
+
+            var histogram = shared.get(eligible);
+            if (histogram == null) {
+                final var selected = new ArrayList<ScheduleGroup>();
+                eligible.stream().forEach(i -> selected.add(compiled.get(i)));
+                final var result = evaluate(selected, date, null);
+                if (!result.errors.isEmpty()) {
+                    this.errors.addAll(result.errors);
+                    return;
+                }
+                histogram = result.histogram;
+                if (shared.size() < MAX_SHARED_HISTOGRAMS) {
+                    shared.put(eligible, histogram);
+                }
+            }
+            if (!quartz.isEmpty()) {
+                final var result = evaluate(quartz, date, null);
+                if (!result.errors.isEmpty()) {
+                    this.errors.addAll(result.errors);
+                    return;
+                }
+                result.histogram.merge(histogram);
+                histogram = result.histogram;
+            }
+
+            consumer.accept(
+                    date, histogram.toFireTimes(startOfDay(date), dictionary));
+            date = date.plusDays(1);
+        }
+    }
+
+    /**
+     * Groups inputs by their expression so each distinct schedule is evaluated
+     * once, regardless of how many lines share it. Identical lines share one
+     * member index into {@code dictionary} so each minute lists them once, as
+     * the count already reflects the duplicates.
+     */
+    private List<ScheduleGroup> groupBySchedule(final List<String> dictionary) {
+        final var groups = new LinkedHashMap<String, ScheduleGroup>();
+        final var members = new HashMap<String, Integer>();
         for (final var input : this.inputs) {
+            final var group =
+                    groups.computeIfAbsent(
+                            CronSchedule.normalize(input.expression),
+                            k -> new ScheduleGroup(input));
+            group.inputs.add(input);
+            members.computeIfAbsent(
+                    input.input,
+                    line -> {
+                        dictionary.add(line);
+                        group.addMember(dictionary.size() - 1);
+                        return dictionary.size() - 1;
+                    });
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /** Evaluates every group on {@code date}, in parallel if worthwhile. */
+    private Partial evaluate(
+            final List<ScheduleGroup> groups,
+            final LocalDate date,
+            @Nullable final DayPatternCache patterns) {
+        if (groups.size() < PARALLEL_THRESHOLD) {
+            return evaluate(groups, 0, groups.size(), date, patterns);
+        }
+        final var evaluation =
+                new Evaluation(groups, 0, groups.size(), date, patterns);
+        return ForkJoinPool.commonPool().invoke(evaluation);
+    }
+
+    /** Evaluates groups {@code [from; to)} on the calling thread. */
+    private static Partial evaluate(
+            final List<ScheduleGroup> groups,
+            final int from,
+            final int to,
+            final LocalDate date,
+            @Nullable final DayPatternCache patterns) {
+        final var partial = new Partial();
+        for (int i = from; i < to; ++i) {
+            final var group = groups.get(i);
             try {
-                calculateFireTimesFor(input, fireTimes);
+                calculateFireTimesFor(group, date, partial.histogram, patterns);
             } catch (final RuntimeException e) {
-                this.errors.add(new ExpressionErrorDetail(input, e));
+                for (final var input : group.inputs) {
+                    partial.errors.add(new ExpressionErrorDetail(input, e));
+                }
+            }
+        }
+        return partial;
+    }
+
+    private static void calculateFireTimesFor(
+            final ScheduleGroup group,
+            final LocalDate date,
+            final MinuteHistogram histogram,
+            @Nullable final DayPatternCache patterns) {
+        final var input = group.representative;
+        final var schedule = input.schedule;
+        if (schedule == null) {
+            enumerateWithQuartz(group, date, histogram);
+            return;
+        }
+
+        final var progression = input.progression;
+        if (progression != null) {
+            // Cheaper to step through than to build or look up a pattern.
+            if (schedule.firesOn(date)) {
+                histogram.add(
+                        progression, group.inputs.size(), group.members());
             }
+            return;
         }
-        return fireTimes.values();
+
+        final var pattern =
+                patterns == null
+                        ? group.pattern(date)
+                        : patterns.get(input, schedule, date);
+        histogram.add(pattern, group.inputs.size(), group.members());
     }
 
-    private void calculateFireTimesFor(
+    /**
+     * Adds the fire-times of {@code input} on {@code date} to {@code counts},
+     * indexed by minute of the day, the same way a whole configuration is
+     * evaluated.
+     */
+    static void countFireTimes(
             final ExpressionInput input,
-            final Map<Instant, FireTime> fireTimes) {
+            final LocalDate date,
+            @Nullable final DayPatternCache patterns,
+            final int[] counts) {
+        final var schedule = input.schedule;
+        if (schedule == null) {
+            forEachQuartzSecondOfDay(
+                    input.cron(), date, second -> counts[second / 60]++);
+            return;
+        }
+        if (!schedule.firesOn(date)) {
+            return;
+        }
 
-        final var cron = input.cron;
+        final var progression = input.progression;
+        if (progression != null) {
+            int minute = progression.first;
+            for (int i = 0; i < progression.count; ++i) {
+                counts[minute] += progression.firesPerMinute;
+                minute += progression.step;
+            }
+            return;
+        }
+
+        final var pattern =
+                patterns == null
+                        ? DayPattern.intraDay(schedule)
+                        : patterns.get(input, schedule, date);
+        pattern.forEachMinute(
+                minute -> counts[minute] += pattern.firesPerMinute);
+    }
+
+    /**
+     * Enumerates fire-times the slow way, one Quartz search per fire-time. This
+     * is the reference implementation {@link CronSchedule} must agree with,
+     * and the fallback for expressions it does not support.
+     */
+    private static void enumerateWithQuartz(
+            final ScheduleGroup group,
+            final LocalDate date,
+            final MinuteHistogram histogram) {
+        final var counts = new int[CronSchedule.MINUTES_PER_DAY];
+        forEachQuartzSecondOfDay(
+                group.cron(), date, second -> counts[second / 60]++);
+
+        final int multiplicity = group.inputs.size();
+        final var members = group.members();
+        for (int minute = 0; minute < counts.length; ++minute) {
+            if (counts[minute] != 0) {
+                histogram.add(minute, counts[minute] * multiplicity, members);
+            }
+        }
+    }
+
+    /**
+     * Feeds the second of the day of every fire-time of {@code group} on
+     * {@code date}, with the compiled schedule if there is one.
+     */
+    private static void forEachSecondOfDay(
+            final ScheduleGroup group,
+            final LocalDate date,
+            final IntConsumer action) {
+        final var schedule = group.representative.schedule;
+        if (schedule == null) {
+            forEachQuartzSecondOfDay(group.cron(), date, action);
+        } else if (schedule.firesOn(date)) {
+            schedule.forEachSecondOfDay(action);
+        }
+    }
+
+    /**
+     * Feeds the second of the day of every fire-time of {@code cron} on
+     * {@code date}, found the slow way.
+     */
+    private static void forEachQuartzSecondOfDay(
+            final CronExpression cron,
+            final LocalDate date,
+            final IntConsumer action) {
+        // Start-of-day until tomorrow.
+        final var periodStart = startOfDay(date);
+        final var periodEnd = periodStart.plus(1, ChronoUnit.DAYS);
 
         // Quartz has to calculate every fire-time. In case the first fire-time
         // should be periodStartIncl, Quartz would advance straight past it, so
@@ -119,13 +579,195 @@ public final class ContentionAggregator {
             }
             nextFireTime = after.toInstant();
             if (nextFireTime.isBefore(periodEnd)) {
-                final Instant key =
-                        nextFireTime.truncatedTo(ChronoUnit.MINUTES);
-                final var fireTime =
-                        fireTimes.computeIfAbsent(key, FireTime::new);
-                fireTime.count += 1;
-                fireTime.expressions.add(input.input);
+                final long secondOfDay =
+                        nextFireTime.getEpochSecond()
+                                - periodStart.getEpochSecond();
+                action.accept((int) secondOfDay);
+            }
+        }
+    }
+
+    /** Every input that shares one schedule. */
+    private static final class ScheduleGroup {
+
+        final ExpressionInput representative;
+
+        final List<ExpressionInput> inputs;
+
+        private int[] members;
+
+        private int memberCount;
+
+        /**
+         * The intra-day pattern of the compiled schedule, computed on first
+         * use and reused for every later day the group is evaluated on.
+         */
+        @Nullable
+        private DayPattern intraDay;
+
+        /**
+         * The Quartz expression of a schedule that is not compiled, parsed on
+         * first use and reused for every later day the group is evaluated on.
+         */
+        @Nullable
+        private CronExpression cron;
+
+        ScheduleGroup(final ExpressionInput representative) {
+            this.representative = representative;
+            this.inputs = new ArrayList<>(1);
+            this.members = new int[1];
+        }
+
+        /** Whether the compiled schedule fires at all on {@code date}. */
+        boolean firesOn(final LocalDate date) {
+            final var schedule = representative.schedule;
+            assert schedule != null : "no compiled schedule";
+            return schedule.firesOn(date);
+        }
+
+        /**
+         * The pattern of the compiled schedule on {@code date}. A group is
+         * evaluated by one thread at a time so the lazy computation is safe.
+         */
+        DayPattern pattern(final LocalDate date) {
+            final var schedule = representative.schedule;
+            assert schedule != null : "no compiled schedule";
+            if (!schedule.firesOn(date)) {
+                return DayPattern.NONE;
+            }
+            if (intraDay == null) {
+                intraDay = DayPattern.intraDay(schedule);
+            }
+            return intraDay;
+        }
+
+        /**
+         * The Quartz expression of {@link #representative}. Like {@link
+         * #pattern(LocalDate)} it is only used by one thread at a time.
+         */
+        CronExpression cron() {
+            if (cron == null) {
+                cron = representative.cron();
+            }
+            return cron;
+        }
+
+        void addMember(final int member) {
+            if (memberCount == members.length) {
+                members = Arrays.copyOf(members, memberCount * 2);
+            }
+            members[memberCount++] = member;
+        }
+
+        /** The distinct member indices of {@link #inputs}. */
+        int[] members() {
+            return memberCount == members.length
+                    ? members
+                    : Arrays.copyOf(members, memberCount);
+        }
+    }
+
+    /**
+     * The distinct run durations of the inputs of one schedule and how many
+     * inputs run for each. A line without a duration runs for one second.
+     */
+    private static final class Durations {
+
+        final int[] seconds;
+
+        final int[] multiplicities;
+
+        final int size;
+
+        final int longest;
+
+        private Durations(
+                final int[] seconds,
+                final int[] multiplicities,
+                final int size) {
+            this.seconds = seconds;
+            this.multiplicities = multiplicities;
+            this.size = size;
+            this.longest = seconds[size - 1];
+        }
+
+        static Durations of(final List<ExpressionInput> inputs) {
+            final var all = new int[inputs.size()];
+            for (int i = 0; i < all.length; ++i) {
+                all[i] = Math.max(1, inputs.get(i).durationSeconds);
+            }
+            Arrays.sort(all);
+            final var seconds = new int[all.length];
+            final var multiplicities = new int[all.length];
+            int size = 0;
+            for (final int duration : all) {
+                if (size == 0 || seconds[size - 1] != duration) {
+                    seconds[size++] = duration;
+                }
+                ++multiplicities[size - 1];
+            }
+            return new Durations(seconds, multiplicities, size);
+        }
+    }
+
+    /** The result of evaluating a contiguous range of inputs. */
+    private static final class Partial {
+
+        final MinuteHistogram histogram = new MinuteHistogram();
+
+        final List<ExpressionErrorDetail> errors = new ArrayList<>();
+
+        /** Merges the partial result of the inputs immediately after this. */
+        void merge(final Partial next) {
+            histogram.merge(next.histogram);
+            errors.addAll(next.errors);
+        }
+    }
+
+    /**
+     * Splits a range of groups in halves until they are small enough to be
+     * evaluated on one thread, then merges the partial results in input order
+     * so errors are reported in the same order as a sequential evaluation.
+     */
+    private static final class Evaluation extends RecursiveTask<Partial> {
+
+        private final List<ScheduleGroup> groups;
+
+        private final int from;
+
+        private final int to;
+
+        private final LocalDate date;
+
+        @Nullable
+        private final DayPatternCache patterns;
+
+        Evaluation(
+                final List<ScheduleGroup> groups,
+                final int from,
+                final int to,
+                final LocalDate date,
+                @Nullable final DayPatternCache patterns) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.date = date;
+            this.patterns = patterns;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return evaluate(groups, from, to, date, patterns);
             }
+            final int mid = (from + to) >>> 1;
+            final var head = new Evaluation(groups, from, mid, date, patterns);
+            head.fork();
+            final var tail =
+                    new Evaluation(groups, mid, to, date, patterns).compute();
+            final var result = head.join();
+            result.merge(tail);
+            return result;
         }
     }
 }
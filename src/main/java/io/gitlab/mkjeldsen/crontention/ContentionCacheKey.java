@@ -1,22 +1,77 @@
 package io.gitlab.mkjeldsen.crontention;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
-import org.wildfly.common.annotation.Nullable;
 
+/**
+ * Identifies a request by a SHA-256 digest of its expression lines and
+ * response variant, and the date it resolved to. The key has the same size
+ * however large the input, so the cache can account for it with a constant.
+ */
 public final class ContentionCacheKey {
 
-    @Nullable
-    final String expressions;
+    /** The approximate retained size of this apart from what it refers to. */
+    private static final int OWN_WEIGHT = 24;
 
-    @Nullable
-    final String date;
+    /** The approximate retained size of a digest: 32 bytes and a header. */
+    private static final int DIGEST_WEIGHT = 48;
 
-    public ContentionCacheKey(
-            @Nullable final String expressions, @Nullable final String date) {
-        this.expressions = expressions;
+    /** The approximate retained size of a {@link LocalDate}. */
+    private static final int DATE_WEIGHT = 24;
+
+    /**
+     * The approximate retained size of a key in bytes: the key, its digest
+     * array and its date.
+     */
+    static final int WEIGHT = OWN_WEIGHT + DIGEST_WEIGHT + DATE_WEIGHT;
+
+    private final byte[] digest;
+
+    private final LocalDate date;
+
+    private ContentionCacheKey(final byte[] digest, final LocalDate date) {
+        this.digest = digest;
         this.date = date;
     }
 
+    /**
+     * Identifies a request for the {@linkplain
+     * ContentionAggregator#splitLines(String) split} {@code lines} on {@code
+     * date}, answered in the form named by {@code variant}. The lines are a
+     * multiset so their order does not matter, but their text does: responses
+     * report it.
+     */
+    public static ContentionCacheKey of(
+            final String variant,
+            final List<String> lines,
+            final LocalDate date) {
+        final var sorted = lines.toArray(new String[0]);
+        Arrays.sort(sorted);
+        final var sha256 = sha256();
+        sha256.update(variant.getBytes(StandardCharsets.UTF_8));
+        // Not valid UTF-8, so no variant runs into the lines.
+        sha256.update((byte) 0xFF);
+        for (final var line : sorted) {
+            sha256.update(line.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) '\n');
+        }
+        return new ContentionCacheKey(sha256.digest(), date);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -26,12 +81,12 @@ public final class ContentionCacheKey {
             return false;
         }
         final ContentionCacheKey entry = (ContentionCacheKey) o;
-        return Objects.equals(expressions, entry.expressions)
+        return Arrays.equals(digest, entry.digest)
                 && Objects.equals(date, entry.date);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(expressions, date);
+        return 31 * Arrays.hashCode(digest) + Objects.hashCode(date);
     }
 }
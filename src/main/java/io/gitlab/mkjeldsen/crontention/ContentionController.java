@@ -1,22 +1,39 @@
 package io.gitlab.mkjeldsen.crontention;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import io.gitlab.mkjeldsen.crontention.csv.ShittyCsv;
+import io.gitlab.mkjeldsen.crontention.csv.StreamingCsv;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import org.jboss.resteasy.annotations.GZIP;
+import javax.ws.rs.core.StreamingOutput;
 import org.wildfly.common.annotation.Nullable;
 
 @Path(ContentionController.ENDPOINT)
@@ -26,80 +43,566 @@ public final class ContentionController {
 
     static final String MEDIA_TYPE_CSV = "text/csv";
 
+    /**
+     * CSV with every expression written once, see {@link DictionaryCsvWriter}.
+     * Sent only to clients that ask for it by name.
+     */
+    static final String MEDIA_TYPE_DICTIONARY_CSV =
+            "text/vnd.crontention.dictionary+csv";
+
     static final String FORM_EXPRESSIONS = "expressions";
 
     static final String FORM_DATE = "date";
 
+    static final String FORM_RESOLUTION = "resolution";
+
+    static final String FORM_COUNT = "count";
+
+    static final String QUERY_TOP = "top";
+
+    static final String QUERY_THRESHOLD = "threshold";
+
+    static final String RANGE_PATH = "range";
+
+    static final String FORM_START = "start";
+
+    static final String FORM_END = "end";
+
+    static final String INCREMENTAL_PATH = "incremental";
+
+    static final String FORM_TOKEN = "token";
+
+    static final String FORM_ADDED = "added";
+
+    static final String FORM_REMOVED = "removed";
+
+    /** Names the revision a response evaluated, to send deltas against. */
+    static final String RESULT_TOKEN_HEADER = "Crontention-Result-Token";
+
+    /** The most days one range request evaluates, to bound its run time. */
+    static final int MAX_RANGE_DAYS = 366;
+
+    /**
+     * Requests with more expression text than this are neither cached nor
+     * buffered as a {@code String} but streamed straight to the client.
+     */
+    static final int MAX_CACHED_EXPRESSIONS_LENGTH = 512 * 1024;
+
+    /**
+     * Bounds the cache by the total size of its keys and compressed entries,
+     * however many of them that is.
+     */
+    static final long MAX_CACHE_BYTES = 32 * 1024 * 1024;
+
+    /** Bounds the kept revisions of incremental evaluations likewise. */
+    static final long MAX_REVISION_BYTES = 64 * 1024 * 1024;
+
+    private static final int TOKEN_BYTES = 16;
+
+    private static final String GZIP = "gzip";
+
+    private static final String VARY_ACCEPT =
+            HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    private static final String[] CSV_HEADER = {
+        "key", "h", "m", "count", "expressions"
+    };
+
+    private static final String[] SECOND_CSV_HEADER = {
+        "key", "h", "m", "s", "seconds", "count"
+    };
+
+    private static final String[] ROLLUP_CSV_HEADER = {
+        "window", "key", "h", "m", "count", "expressions"
+    };
+
+    private static final String[] RANGE_CSV_HEADER = {
+        "date", "key", "h", "m", "count", "expressions"
+    };
+
+    /**
+     * Caches the payload of a request. This helps when the same configuration
+     * is loaded often in a short period of time, such as when sharing a link.
+     * Payloads are stored gzip-encoded so hits are not compressed again.
+     */
+    private final Cache<ContentionCacheKey, CompressedCsv> cache;
+
     /**
-     * Caches the payload of a request. It would have been more elegant to cache
-     * the individual cron expressions so they could be composed but because
-     * {@link FireTime} is a running aggregate that becomes difficult. This
-     * won't work when somebody iterates over configurations but it will help
-     * when the same configuration is loaded often in a short period of time,
-     * such as when sharing a linking.
+     * Caches the day pattern of individual cron expressions. Requests are
+     * composed from these so a configuration that somebody iterates over only
+     * has its edited lines evaluated.
      */
-    private final LoadingCache<ContentionCacheKey, String> cache;
+    private final DayPatternCache patterns;
+
+    /**
+     * Keeps the revisions of incremental evaluations by their token, so the
+     * next edit of a configuration can be sent as a delta.
+     */
+    private final Cache<String, IncrementalEvaluation> revisions;
+
+    private final SecureRandom random;
 
     public ContentionController() {
+        patterns = new DayPatternCache(50_000);
+        random = new SecureRandom();
+        revisions =
+                Caffeine.newBuilder()
+                        .maximumWeight(MAX_REVISION_BYTES)
+                        .weigher(
+                                (String k, IncrementalEvaluation v) ->
+                                        v.weight())
+                        .expireAfterWrite(Duration.ofHours(1))
+                        .build();
         cache =
                 Caffeine.newBuilder()
-                        .maximumSize(500)
+                        .maximumWeight(MAX_CACHE_BYTES)
+                        .weigher(
+                                (ContentionCacheKey k, CompressedCsv v) ->
+                                        ContentionCacheKey.WEIGHT + v.size())
                         // Heroku sleeps after 30m. Don't spend CPU expiring
                         // entries
                         // Heroku would expire for us.
                         .expireAfterWrite(Duration.ofHours(1))
-                        .build(this::computeEntry);
+                        .build();
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
-    @GZIP
+    @Produces({MEDIA_TYPE_CSV, MEDIA_TYPE_DICTIONARY_CSV})
+    public Response calculate(
+            @Nullable @FormParam(FORM_EXPRESSIONS) final String expressions,
+            @Nullable @FormParam(FORM_DATE) final String date,
+            @Nullable @FormParam(FORM_RESOLUTION) final String resolution,
+            @Nullable @FormParam(FORM_COUNT) final String count,
+            @Nullable @QueryParam(QUERY_TOP) final String top,
+            @Nullable @QueryParam(QUERY_THRESHOLD) final String threshold,
+            @Nullable @HeaderParam(HttpHeaders.ACCEPT) final String accept,
+            @Nullable @HeaderParam(HttpHeaders.ACCEPT_ENCODING)
+                    final String acceptEncoding) {
+        final var day = resolveDate(date);
+        final var variant =
+                Variant.of(resolution, count, top, threshold, accept);
+        final var lines = splitLines(expressions);
+        final Response.ResponseBuilder response;
+        if (expressions != null
+                && expressions.length() > MAX_CACHED_EXPRESSIONS_LENGTH) {
+            // Evaluate before streaming so errors still become a 400. The HTTP
+            // layer compresses the stream if the client accepts it.
+            final var body = evaluate(lines, day, variant);
+            final StreamingOutput entity = out -> writeCsv(body, out);
+            response = Response.ok(entity);
+        } else {
+            final var key =
+                    ContentionCacheKey.of(variant.toString(), lines, day);
+            final var csv =
+                    cache.get(
+                            key,
+                            k -> {
+                                final var body = evaluate(lines, day, variant);
+                                return CompressedCsv.of(body);
+                            });
+            if (acceptsGzip(acceptEncoding)) {
+                // The HTTP layer leaves already encoded responses alone.
+                response =
+                        Response.ok(csv.gzip())
+                                .header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            } else {
+                final StreamingOutput entity = csv::writeIdentityTo;
+                response = Response.ok(entity);
+            }
+        }
+        return response.type(variant.mediaType())
+                .header(HttpHeaders.VARY, VARY_ACCEPT)
+                .build();
+    }
+
+    /**
+     * Evaluates a configuration sent as a plain text body, one expression per
+     * line, with the options of {@link #calculate} as query parameters. Lines
+     * are read from the request stream and parsed one at a time, so the body
+     * is never held as one string or split into an array of lines. Neither is
+     * the result cached: the bodies this is for are far larger than the cache
+     * admits anyway.
+     */
+    @POST
+    @Consumes(MediaType.TEXT_PLAIN)
+    @Produces({MEDIA_TYPE_CSV, MEDIA_TYPE_DICTIONARY_CSV})
+    public Response calculatePlainText(
+            final InputStream expressions,
+            @Nullable @QueryParam(FORM_DATE) final String date,
+            @Nullable @QueryParam(FORM_RESOLUTION) final String resolution,
+            @Nullable @QueryParam(FORM_COUNT) final String count,
+            @Nullable @QueryParam(QUERY_TOP) final String top,
+            @Nullable @QueryParam(QUERY_THRESHOLD) final String threshold,
+            @Nullable @HeaderParam(HttpHeaders.ACCEPT) final String accept)
+            throws IOException {
+        final var day = resolveDate(date);
+        final var variant =
+                Variant.of(resolution, count, top, threshold, accept);
+        final var aggregator = ContentionAggregator.forUtcDate(day);
+        final var in =
+                new InputStreamReader(expressions, StandardCharsets.UTF_8);
+        try (final var reader = new BufferedReader(in)) {
+            aggregator.parseCronExpressions(reader);
+        }
+
+        // Evaluate before streaming so errors still become a 400.
+        final var body = evaluate(aggregator, variant);
+        final StreamingOutput entity = out -> writeCsv(body, out);
+        return Response.ok(entity)
+                .type(variant.mediaType())
+                .header(HttpHeaders.VARY, VARY_ACCEPT)
+                .build();
+    }
+
+    /**
+     * Evaluates every day from {@code start} through {@code end}, inclusive,
+     * and streams one histogram per day. A missing {@code end} means only
+     * {@code start}. Days are written as they are evaluated so the response is
+     * never held in memory as a whole.
+     */
+    @POST
+    @Path(RANGE_PATH)
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MEDIA_TYPE_CSV)
-    public String calculate(
+    public Response calculateRange(
             @Nullable @FormParam(FORM_EXPRESSIONS) final String expressions,
-            @Nullable @FormParam(FORM_DATE) final String date) {
-        return cache.get(new ContentionCacheKey(expressions, date));
+            @Nullable @FormParam(FORM_START) final String start,
+            @Nullable @FormParam(FORM_END) final String end) {
+        final var first = resolveDate(FORM_START, start);
+        final var last =
+                end == null || end.isBlank()
+                        ? first
+                        : resolveDate(FORM_END, end);
+        if (last.isBefore(first)) {
+            throw failWithInfo(FORM_END, end, "Must not be before start.");
+        }
+        if (ChronoUnit.DAYS.between(first, last) >= MAX_RANGE_DAYS) {
+            throw failWithInfo(
+                    FORM_END,
+                    end,
+                    "Must be less than "
+                            + MAX_RANGE_DAYS
+                            + " days after start.");
+        }
+
+        final var aggregator = ContentionAggregator.forUtcDate(first);
+        if (expressions != null) {
+            aggregator.parseCronExpressions(expressions);
+            if (!aggregator.errors.isEmpty()) {
+                throw failWithInfo(Map.of(FORM_EXPRESSIONS, aggregator.errors));
+            }
+        }
+
+        final StreamingOutput entity =
+                out -> {
+                    final var csv = new StreamingCsv(out);
+                    csv.header(RANGE_CSV_HEADER);
+                    aggregator.calculateDailyFireTimes(
+                            last,
+                            (day, fireTimes) -> writeDay(csv, day, fireTimes));
+                    csv.flush();
+                    if (!aggregator.errors.isEmpty()) {
+                        // Too late for a 400. Fail the response so it is not
+                        // mistaken for a complete one.
+                        throw new IllegalStateException(
+                                "Evaluation failed: " + aggregator.errors);
+                    }
+                };
+        return Response.ok(entity).build();
+    }
+
+    /**
+     * Evaluates a configuration like {@link #calculate} and keeps the result
+     * under a new token, sent in the {@value #RESULT_TOKEN_HEADER} header.
+     * Given a {@code token} instead of {@code expressions}, evaluates the
+     * revision of that result with the {@code removed} lines taken away and
+     * the {@code added} lines put in, evaluating only the lines it did not
+     * already have. An unknown or expired token is a 400, after which the
+     * client sends the whole configuration again.
+     */
+    @POST
+    @Path(INCREMENTAL_PATH)
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MEDIA_TYPE_CSV)
+    public Response calculateIncrementally(
+            @Nullable @FormParam(FORM_EXPRESSIONS) final String expressions,
+            @Nullable @FormParam(FORM_DATE) final String date,
+            @Nullable @FormParam(FORM_TOKEN) final String token,
+            @Nullable @FormParam(FORM_ADDED) final String added,
+            @Nullable @FormParam(FORM_REMOVED) final String removed) {
+        final var errors = new ArrayList<ExpressionErrorDetail>();
+        final IncrementalEvaluation revision;
+        if (token == null || token.isBlank()) {
+            revision =
+                    IncrementalEvaluation.of(
+                            resolveDate(date),
+                            splitLines(expressions),
+                            patterns,
+                            errors);
+            if (!errors.isEmpty()) {
+                throw failWithInfo(Map.of(FORM_EXPRESSIONS, errors));
+            }
+        } else {
+            final var previous = revisions.getIfPresent(token);
+            if (previous == null) {
+                throw failWithInfo(FORM_TOKEN, token, "Unknown or expired.");
+            }
+            final var removedLines = splitLines(removed);
+            final var missing = previous.missing(removedLines);
+            if (!missing.isEmpty()) {
+                throw failWithInfo(
+                        FORM_REMOVED, removed, "Missing: " + missing);
+            }
+            revision =
+                    previous.update(
+                            splitLines(added),
+                            removedLines,
+                            patterns,
+                            errors);
+            if (!errors.isEmpty()) {
+                throw failWithInfo(Map.of(FORM_ADDED, errors));
+            }
+        }
+
+        final var revisionToken = newToken();
+        revisions.put(revisionToken, revision);
+        final var fireTimes = revision.toFireTimes(BucketSelection.ALL);
+        final StreamingOutput entity =
+                out -> writeCsv(csv -> writeFireTimes(fireTimes, csv), out);
+        return Response.ok(entity)
+                .header(RESULT_TOKEN_HEADER, revisionToken)
+                .build();
+    }
+
+    private String newToken() {
+        final var bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static List<String> splitLines(@Nullable final String lines) {
+        return lines == null
+                ? List.of()
+                : ContentionAggregator.splitLines(lines);
+    }
+
+    private static void writeDay(
+            final StreamingCsv csv,
+            final LocalDate date,
+            final List<FireTime> fireTimes) {
+        final var day = date.toString();
+        for (final var fireTime : fireTimes) {
+            final var writer = new ContentionCsvRecordWriter(fireTime);
+            csv.record(
+                    record -> {
+                        record.field(day);
+                        writer.accept(record);
+                    });
+        }
+    }
+
+    private static LocalDate resolveDate(@Nullable final String date) {
+        return resolveDate(FORM_DATE, date);
     }
 
-    private String computeEntry(final ContentionCacheKey k) {
-        final ContentionAggregator aggregator;
+    private static LocalDate resolveDate(
+            final String field, @Nullable final String date) {
         try {
-            aggregator = ContentionAggregator.forUtcDate(k.date);
+            return ContentionAggregator.resolveUtcDate(date);
         } catch (final DateFieldValueException e) {
-            final var details = Map.of("value", k.date, "msg", e.getMessage());
-            throw failWithInfo(Map.of(FORM_DATE, details));
+            throw failWithInfo(field, date, e.getMessage());
         }
+    }
 
-        final Collection<FireTime> fireTimes;
-        if (k.expressions == null || k.expressions.isEmpty()) {
-            fireTimes = Collections.emptyList();
-        } else {
-            aggregator.parseCronExpressions(k.expressions);
-            fireTimes = aggregator.calculateFireTimes();
-            if (!aggregator.errors.isEmpty()) {
-                throw failWithInfo(Map.of(FORM_EXPRESSIONS, aggregator.errors));
+    private Consumer<StreamingCsv> evaluate(
+            final List<String> lines,
+            final LocalDate day,
+            final Variant variant) {
+        final var aggregator = ContentionAggregator.forUtcDate(day);
+        aggregator.parseCronExpressions(lines);
+        return evaluate(aggregator, variant);
+    }
+
+    /**
+     * Evaluates the lines {@code aggregator} has parsed as {@code variant}
+     * says and returns what writes the response body, or throws a 400 for
+     * invalid lines.
+     */
+    private Consumer<StreamingCsv> evaluate(
+            final ContentionAggregator aggregator, final Variant variant) {
+        final var selection = variant.selection;
+        if (variant.measure == Count.RUNNING) {
+            final boolean seconds = variant.unit == Resolution.SECOND;
+            final var counts =
+                    seconds
+                            ? aggregator.calculateRunningCounts()
+                            : aggregator.calculatePeakConcurrency();
+            failOnErrors(aggregator);
+            selection.retain(counts);
+            return csv -> writeRuns(counts, seconds ? 1 : 60, csv);
+        }
+        if (variant.unit == Resolution.SECOND) {
+            final var counts = aggregator.calculateSecondCounts();
+            failOnErrors(aggregator);
+            selection.retain(counts);
+            return csv -> writeRuns(counts, 1, csv);
+        }
+        if (variant.unit == Resolution.ROLLUP) {
+            final var levels = aggregator.calculateRollups(patterns, selection);
+            failOnErrors(aggregator);
+            return csv -> writeRollups(levels, csv);
+        }
+        final var fireTimes =
+                aggregator.calculateFireTimes(patterns, selection);
+        failOnErrors(aggregator);
+        if (variant.dictionary) {
+            return new DictionaryCsvWriter(fireTimes);
+        }
+        return csv -> writeFireTimes(fireTimes, csv);
+    }
+
+    private static void failOnErrors(final ContentionAggregator aggregator) {
+        if (!aggregator.errors.isEmpty()) {
+            throw failWithInfo(Map.of(FORM_EXPRESSIONS, aggregator.errors));
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header value admits gzip with a
+     * non-zero quality. An explicit {@code gzip} entry overrides {@code *}.
+     */
+    static boolean acceptsGzip(@Nullable final String acceptEncoding) {
+        return accepts(acceptEncoding, GZIP, "*");
+    }
+
+    /**
+     * Whether an {@code Accept} header value names the dictionary media type
+     * with a non-zero quality. Wildcards do not count; they get plain CSV.
+     */
+    static boolean acceptsDictionary(@Nullable final String accept) {
+        return accepts(accept, MEDIA_TYPE_DICTIONARY_CSV, null);
+    }
+
+    private static boolean accepts(
+            @Nullable final String header,
+            final String name,
+            @Nullable final String wildcardName) {
+        if (header == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (final var entry : header.split(",")) {
+            final int params = entry.indexOf(';');
+            final var entryName =
+                    (params < 0 ? entry : entry.substring(0, params)).trim();
+            final boolean accepted =
+                    params < 0 || !isZeroQuality(entry.substring(params + 1));
+            if (name.equalsIgnoreCase(entryName)) {
+                return accepted;
+            }
+            if (entryName.equals(wildcardName)) {
+                wildcard = accepted;
             }
         }
+        return wildcard;
+    }
 
-        return toCsv(fireTimes);
+    private static boolean isZeroQuality(final String params) {
+        final var q = params.replace(" ", "").toLowerCase(Locale.US);
+        return q.matches("q=0(\\.0*)?");
     }
 
-    private static String toCsv(final Collection<FireTime> fireTimes) {
-        // Header + record count.
-        final int approxLineCount = 1 + fireTimes.size();
-        // Manually counted.
-        final int minRecordByteCount = 28;
-        // Complex expressions consume more bytes but tend to produce fewer
-        // records. Doubling tends to overshoot by 0.5x to 1x.
-        final int approxRecordByteCount = minRecordByteCount * 2;
-        final int estCapacity = approxRecordByteCount * approxLineCount;
+    private static void writeCsv(
+            final Consumer<StreamingCsv> body, final OutputStream out)
+            throws IOException {
+        final var csv = new StreamingCsv(out);
+        body.accept(csv);
+        csv.flush();
+    }
 
-        final var csv = new ShittyCsv(estCapacity);
-        csv.header("key", "h", "m", "count", "expressions");
+    private static void writeFireTimes(
+            final Collection<FireTime> fireTimes, final StreamingCsv csv) {
+        csv.header(CSV_HEADER);
         for (final var fireTime : fireTimes) {
             csv.record(new ContentionCsvRecordWriter(fireTime));
         }
-        return csv.toString();
+    }
+
+    /**
+     * Writes every level of rollups, finest first, each record led by the
+     * size of its window in minutes.
+     */
+    private static void writeRollups(
+            final List<List<FireTime>> levels, final StreamingCsv csv) {
+        csv.header(ROLLUP_CSV_HEADER);
+        for (int level = 0; level < levels.size(); ++level) {
+            final int window = ContentionAggregator.ROLLUP_MINUTES.get(level);
+            for (final var fireTime : levels.get(level)) {
+                final var writer = new ContentionCsvRecordWriter(fireTime);
+                csv.record(
+                        record -> {
+                            record.field(window);
+                            writer.accept(record);
+                        });
+            }
+        }
+    }
+
+    /**
+     * Writes runs of buckets with the same non-zero count as one record each.
+     * A busy day has few distinct counts, so this is far smaller than a
+     * record per bucket. Buckets are {@code secondsPerBucket} long, and runs
+     * are written in seconds whatever the bucket size.
+     */
+    private static void writeRuns(
+            final int[] counts,
+            final int secondsPerBucket,
+            final StreamingCsv csv) {
+        csv.header(SECOND_CSV_HEADER);
+        int second = 0;
+        while (second < counts.length) {
+            final int count = counts[second];
+            int end = second + 1;
+            while (end < counts.length && counts[end] == count) {
+                ++end;
+            }
+            if (count != 0) {
+                csv.record(
+                        new SecondRunCsvRecordWriter(
+                                second * secondsPerBucket,
+                                (end - second) * secondsPerBucket,
+                                count));
+            }
+            second = end;
+        }
+    }
+
+    private static int parseNonNegative(
+            final String field, @Nullable final String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            final int n = Integer.parseInt(value.strip());
+            if (n >= 0) {
+                return n;
+            }
+        } catch (final NumberFormatException e) {
+            // Reported below.
+        }
+        throw failWithInfo(field, value, "Expected a non-negative integer.");
+    }
+
+    private static WebApplicationException failWithInfo(
+            final String field,
+            @Nullable final String value,
+            final String message) {
+        // Map.of does not permit null.
+        final var details = new HashMap<String, Object>();
+        details.put("value", value);
+        details.put("msg", message);
+        return failWithInfo(Map.of(field, details));
     }
 
     private static WebApplicationException failWithInfo(
@@ -113,4 +616,137 @@ public final class ContentionController {
                         .build();
         return new WebApplicationException(response);
     }
+
+    /** How a request wants its day evaluated and written. */
+    private static final class Variant {
+
+        final Resolution unit;
+
+        final Count measure;
+
+        /** Whether minute fire-times are written in the dictionary form. */
+        final boolean dictionary;
+
+        final BucketSelection selection;
+
+        Variant(
+                final Resolution unit,
+                final Count measure,
+                final boolean dictionary,
+                final BucketSelection selection) {
+            this.unit = unit;
+            this.measure = measure;
+            this.dictionary = dictionary;
+            this.selection = selection;
+        }
+
+        /**
+         * Reads the options of a request, or throws a 400 for invalid ones.
+         * The dictionary form is used if {@code accept} asks for it and the
+         * buckets list expressions to make a dictionary of.
+         */
+        static Variant of(
+                @Nullable final String resolution,
+                @Nullable final String count,
+                @Nullable final String top,
+                @Nullable final String threshold,
+                @Nullable final String accept) {
+            final var unit = Resolution.of(resolution);
+            final var measure = Count.of(count);
+            if (unit == Resolution.ROLLUP && measure != Count.STARTS) {
+                throw failWithInfo(
+                        FORM_RESOLUTION,
+                        resolution,
+                        "Rollups count starts only.");
+            }
+            final boolean dictionary =
+                    unit == Resolution.MINUTE
+                            && measure == Count.STARTS
+                            && acceptsDictionary(accept);
+            // As many buckets as there are, or more, is every bucket. Clamped
+            // here so the limit never sizes anything beyond the day.
+            final int topBuckets = parseNonNegative(QUERY_TOP, top);
+            final var selection =
+                    BucketSelection.of(
+                            topBuckets < unit.buckets() ? topBuckets : 0,
+                            parseNonNegative(QUERY_THRESHOLD, threshold));
+            return new Variant(unit, measure, dictionary, selection);
+        }
+
+        String mediaType() {
+            return dictionary ? MEDIA_TYPE_DICTIONARY_CSV : MEDIA_TYPE_CSV;
+        }
+
+        /** Identifies the variant in cache keys. */
+        @Override
+        public String toString() {
+            return unit
+                    + " "
+                    + measure
+                    + (dictionary ? " DICTIONARY " : " ")
+                    + selection;
+        }
+    }
+
+    /** The size of the buckets fire-times are counted in. */
+    enum Resolution {
+        /** Minute buckets that list the lines firing in them. */
+        MINUTE,
+
+        /** Second buckets with counts only, written as runs. */
+        SECOND,
+
+        /**
+         * Minute buckets along with 5 minute, 15 minute and hour windows, all
+         * from one evaluation.
+         */
+        ROLLUP;
+
+        /** The most buckets of a day at this resolution. */
+        int buckets() {
+            return this == SECOND
+                    ? CronSchedule.SECONDS_PER_DAY
+                    : CronSchedule.MINUTES_PER_DAY;
+        }
+
+        static Resolution of(@Nullable final String value) {
+            if (value == null || value.isBlank()) {
+                return MINUTE;
+            }
+            for (final var resolution : values()) {
+                if (resolution.name().equalsIgnoreCase(value.strip())) {
+                    return resolution;
+                }
+            }
+            throw failWithInfo(
+                    FORM_RESOLUTION,
+                    value,
+                    "Expected \"minute\", \"second\" or \"rollup\".");
+        }
+    }
+
+    /** What is counted in every bucket. */
+    enum Count {
+        /** The fire-times, that is, jobs starting. */
+        STARTS,
+
+        /**
+         * The most jobs running at once, given the duration annotation of each
+         * line.
+         */
+        RUNNING;
+
+        static Count of(@Nullable final String value) {
+            if (value == null || value.isBlank()) {
+                return STARTS;
+            }
+            for (final var count : values()) {
+                if (count.name().equalsIgnoreCase(value.strip())) {
+                    return count;
+                }
+            }
+            throw failWithInfo(
+                    FORM_COUNT, value, "Expected \"starts\" or \"running\".");
+        }
+    }
 }
@@ -20,16 +20,21 @@ public final class ContentionCsvRecordWriter implements Consumer<Record> {
 
     @Override
     public void accept(final Record rec) {
-        final var timeStamp = fireTime.when.atZone(ZoneOffset.UTC);
         final var detail = new StringJoiner("\n");
         for (final var expr : fireTime.expressions) {
             detail.add(expr);
         }
 
+        writeCount(rec, fireTime);
+        rec.quoteField(detail.toString());
+    }
+
+    /** Writes the key, hour, minute and count fields of {@code fireTime}. */
+    static void writeCount(final Record rec, final FireTime fireTime) {
+        final var timeStamp = fireTime.when.atZone(ZoneOffset.UTC);
         rec.field(DATA_KEY_FORMATTER.format(timeStamp));
         rec.field(timeStamp.get(ChronoField.HOUR_OF_DAY));
         rec.field(timeStamp.get(ChronoField.MINUTE_OF_HOUR));
         rec.field(fireTime.count);
-        rec.quoteField(detail.toString());
     }
 }
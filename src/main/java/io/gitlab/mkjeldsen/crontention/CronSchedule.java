@@ -0,0 +1,491 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.StringTokenizer;
+import java.util.function.IntConsumer;
+import org.quartz.CronExpression;
+import org.wildfly.common.annotation.Nullable;
+
+/**
+ * A Quartz cron expression compiled into one bitmask per field. Quartz's
+ * {@link CronExpression} can only search for the next fire-time after a given
+ * instant, so enumerating a day means one search per fire-time. The fields of
+ * a cron expression are independent, however: the day fields decide whether a
+ * date fires at all and the hour, minute, and second fields decide when during
+ * that date. That makes a day's fire-times directly enumerable.
+ *
+ * <p>Instances are immutable and represent an expression {@link
+ * CronExpression} already accepted. The compiler mirrors Quartz's own parser
+ * and evaluation rules, including its quirks, and gives up on anything it does
+ * not recognize so callers can fall back to Quartz.
+ */
+final class CronSchedule {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    static final int SECONDS_PER_DAY = MINUTES_PER_DAY * 60;
+
+    private static final int MIN_YEAR = 1970;
+
+    private static final String[] MONTH_NAMES = {
+        "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT",
+        "NOV", "DEC"
+    };
+
+    private static final String[] DAY_OF_WEEK_NAMES = {
+        "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"
+    };
+
+    /** Bits 0-59. */
+    private final long seconds;
+
+    /** Bits 0-59. */
+    private final long minutes;
+
+    /** Bits 0-23. */
+    private final long hours;
+
+    /** Bits 1-31. */
+    private final long daysOfMonth;
+
+    /** Bits 1-12. */
+    private final long months;
+
+    /** Bits 1-7, Sunday is 1. */
+    private final long daysOfWeek;
+
+    /** Bit {@code n} is the year {@code 1970 + n}. */
+    private final long[] years;
+
+    /** Whether the day-of-month field is {@code ?}. */
+    private final boolean dayOfWeekDriven;
+
+    private final boolean lastDayOfMonth;
+
+    private final int lastDayOffset;
+
+    private final boolean nearestWeekday;
+
+    private final boolean lastDayOfWeek;
+
+    private final int nthDayOfWeek;
+
+    private CronSchedule(final Fields fields) {
+        this.seconds = fields.seconds;
+        this.minutes = fields.minutes;
+        this.hours = fields.hours;
+        this.daysOfMonth = fields.daysOfMonth;
+        this.months = fields.months;
+        this.daysOfWeek = fields.daysOfWeek;
+        this.years = fields.years;
+        this.dayOfWeekDriven = fields.dayOfMonthUnspecified;
+        this.lastDayOfMonth = fields.lastDayOfMonth;
+        this.lastDayOffset = fields.lastDayOffset;
+        this.nearestWeekday = fields.nearestWeekday;
+        this.lastDayOfWeek = fields.lastDayOfWeek;
+        this.nthDayOfWeek = fields.nthDayOfWeek;
+    }
+
+    /**
+     * Compiles an expression that {@link CronExpression} has already accepted.
+     *
+     * @return the compiled schedule, or {@code null} if the expression uses
+     *     syntax this compiler does not recognize.
+     */
+    @Nullable
+    static CronSchedule compile(final String expression) {
+        final var tokens =
+                new StringTokenizer(expression.toUpperCase(Locale.US), " \t");
+        final var fields = new Fields();
+        try {
+            fields.seconds = parseField(tokens.nextToken(), 0, 59, null);
+            fields.minutes = parseField(tokens.nextToken(), 0, 59, null);
+            fields.hours = parseField(tokens.nextToken(), 0, 23, null);
+            parseDayOfMonth(tokens.nextToken(), fields);
+            fields.months =
+                    parseField(tokens.nextToken(), 1, 12, MONTH_NAMES);
+            parseDayOfWeek(tokens.nextToken(), fields);
+            fields.years =
+                    tokens.hasMoreTokens()
+                            ? parseYears(tokens.nextToken())
+                            : parseYears("*");
+        } catch (final RuntimeException e) {
+            // Either CronExpression accepted something we don't understand or
+            // this was never a valid expression. In both cases, defer to
+            // Quartz.
+            return null;
+        }
+        if (tokens.hasMoreTokens()) {
+            return null;
+        }
+        return new CronSchedule(fields);
+    }
+
+    /**
+     * Reduces an expression to a form that is equal for any two expressions
+     * Quartz would read the same way: upper-case with single-space separators.
+     */
+    static String normalize(final String expression) {
+        final var sb = new StringBuilder(expression.length());
+        boolean separate = false;
+        for (int i = 0; i < expression.length(); ++i) {
+            final char c = expression.charAt(i);
+            if (c == ' ' || c == '\t') {
+                separate = sb.length() > 0;
+            } else {
+                if (separate) {
+                    sb.append(' ');
+                    separate = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString().toUpperCase(Locale.US);
+    }
+
+    /** The number of fire-times within each minute this schedule fires in. */
+    int firesPerMinute() {
+        return Long.bitCount(seconds);
+    }
+
+    /** Whether this schedule fires at all on the given UTC date. */
+    boolean firesOn(final LocalDate date) {
+        final int yearIdx = date.getYear() - MIN_YEAR;
+        if (yearIdx < 0
+                || yearIdx >= years.length * Long.SIZE
+                || (years[yearIdx / Long.SIZE] & (1L << yearIdx)) == 0) {
+            return false;
+        }
+        if (!isSet(months, date.getMonthValue())) {
+            return false;
+        }
+        return dayOfWeekDriven
+                ? dayOfWeekMatches(date)
+                : dayOfMonthMatches(date);
+    }
+
+    /**
+     * Feeds every minute of the day, as an offset from midnight, that this
+     * schedule fires in on any date it {@link #firesOn fires on}, in ascending
+     * order.
+     */
+    void forEachMinuteOfDay(final IntConsumer action) {
+        if (seconds == 0) {
+            return;
+        }
+        for (long hs = hours; hs != 0; hs &= hs - 1) {
+            final int hourOffset = Long.numberOfTrailingZeros(hs) * 60;
+            for (long ms = minutes; ms != 0; ms &= ms - 1) {
+                action.accept(hourOffset + Long.numberOfTrailingZeros(ms));
+            }
+        }
+    }
+
+    /**
+     * The minutes of the day this schedule fires in as an arithmetic
+     * progression, or {@code null} if they do not form one, such as for an
+     * irregular list. The date fields do not matter; {@link #firesOn} decides
+     * whether the progression applies.
+     */
+    @Nullable
+    MinuteProgression progression() {
+        final int firesPerMinute = firesPerMinute();
+        final int minuteStep = stepOf(minutes);
+        final int hourStep = stepOf(hours);
+        if (firesPerMinute == 0 || minuteStep < 0 || hourStep < 0) {
+            return null;
+        }
+        final int minuteCount = Long.bitCount(minutes);
+        final int hourCount = Long.bitCount(hours);
+        final int step;
+        if (hourCount == 1) {
+            step = minuteCount == 1 ? 1 : minuteStep;
+        } else if (minuteCount == 1) {
+            step = hourStep * 60;
+        } else if (hourStep == 1 && minuteStep * minuteCount == 60) {
+            // The minutes continue seamlessly into the next hour.
+            step = minuteStep;
+        } else {
+            return null;
+        }
+        final int first =
+                Long.numberOfTrailingZeros(hours) * 60
+                        + Long.numberOfTrailingZeros(minutes);
+        return new MinuteProgression(
+                first, step, minuteCount * hourCount, firesPerMinute);
+    }
+
+    /**
+     * The distance between consecutive set bits of {@code mask}, {@code 0} if
+     * only one bit is set, or {@code -1} if they are unevenly spaced.
+     */
+    private static int stepOf(final long mask) {
+        int previous = Long.numberOfTrailingZeros(mask);
+        int step = 0;
+        for (long rest = mask & (mask - 1); rest != 0; rest &= rest - 1) {
+            final int bit = Long.numberOfTrailingZeros(rest);
+            if (step == 0) {
+                step = bit - previous;
+            } else if (bit - previous != step) {
+                return -1;
+            }
+            previous = bit;
+        }
+        return step;
+    }
+
+    /** Feeds every second of the day this schedule fires in, in order. */
+    void forEachSecondOfDay(final IntConsumer action) {
+        forEachMinuteOfDay(
+                minute -> {
+                    final int minuteOffset = minute * 60;
+                    for (long ss = seconds; ss != 0; ss &= ss - 1) {
+                        action.accept(
+                                minuteOffset + Long.numberOfTrailingZeros(ss));
+                    }
+                });
+    }
+
+    private boolean dayOfMonthMatches(final LocalDate date) {
+        final int day = date.getDayOfMonth();
+        if (lastDayOfMonth || nearestWeekday) {
+            final int lastDay = date.lengthOfMonth();
+            int target =
+                    lastDayOfMonth
+                            ? lastDay - lastDayOffset
+                            : Long.numberOfTrailingZeros(daysOfMonth);
+            if (target > lastDay && !lastDayOfMonth) {
+                // Quartz sets the day leniently, so "31W" in April looks at
+                // May 1st. Only a Saturday there moves it back into April.
+                final var rolled = date.withDayOfMonth(1).plusDays(target - 1);
+                return target - 1 == lastDay
+                        && day == lastDay
+                        && rolled.getDayOfWeek() == DayOfWeek.SATURDAY;
+            }
+            if (target < 1 || target > lastDay) {
+                return false;
+            }
+            if (nearestWeekday) {
+                final var dow = date.withDayOfMonth(target).getDayOfWeek();
+                if (dow == DayOfWeek.SATURDAY) {
+                    target += target == 1 ? 2 : -1;
+                } else if (dow == DayOfWeek.SUNDAY) {
+                    target += target == lastDay ? -2 : 1;
+                }
+            }
+            return day == target;
+        }
+        return isSet(daysOfMonth, day);
+    }
+
+    private boolean dayOfWeekMatches(final LocalDate date) {
+        // ISO has Monday=1..Sunday=7; Quartz has Sunday=1..Saturday=7.
+        final int dow = date.getDayOfWeek().getValue() % 7 + 1;
+        if (lastDayOfWeek || nthDayOfWeek != 0) {
+            // Quartz only considers the first day in these cases.
+            if (dow != Long.numberOfTrailingZeros(daysOfWeek)) {
+                return false;
+            }
+            final int day = date.getDayOfMonth();
+            return lastDayOfWeek
+                    ? day + 7 > date.lengthOfMonth()
+                    : (day - 1) / 7 + 1 == nthDayOfWeek;
+        }
+        return isSet(daysOfWeek, dow);
+    }
+
+    private static boolean isSet(final long mask, final int bit) {
+        return (mask & (1L << bit)) != 0;
+    }
+
+    private static long parseField(
+            final String field,
+            final int min,
+            final int max,
+            @Nullable final String[] names) {
+        long mask = 0;
+        for (final var item : field.split(",", -1)) {
+            mask |= parseItem(item, min, max, names);
+        }
+        return mask;
+    }
+
+    private static void parseDayOfMonth(final String field, final Fields f) {
+        if ("?".equals(field)) {
+            f.dayOfMonthUnspecified = true;
+            return;
+        }
+        for (final var item : field.split(",", -1)) {
+            if (item.startsWith("L")) {
+                f.lastDayOfMonth = true;
+                var rest = item.substring(1);
+                if (rest.endsWith("W")) {
+                    f.nearestWeekday = true;
+                    rest = rest.substring(0, rest.length() - 1);
+                }
+                if (rest.startsWith("-")) {
+                    f.lastDayOffset = Integer.parseInt(rest.substring(1));
+                } else if (!rest.isEmpty()) {
+                    throw new IllegalArgumentException(item);
+                }
+            } else if (item.endsWith("W")) {
+                f.nearestWeekday = true;
+                f.daysOfMonth |=
+                        1L << Integer.parseInt(
+                                item.substring(0, item.length() - 1));
+            } else {
+                f.daysOfMonth |= parseItem(item, 1, 31, null);
+            }
+        }
+    }
+
+    private static void parseDayOfWeek(final String field, final Fields f) {
+        if ("?".equals(field)) {
+            if (f.dayOfMonthUnspecified) {
+                throw new IllegalArgumentException(field);
+            }
+            return;
+        }
+        if (!f.dayOfMonthUnspecified) {
+            throw new IllegalArgumentException(field);
+        }
+        for (final var item : field.split(",", -1)) {
+            final int hash = item.indexOf('#');
+            if ("L".equals(item)) {
+                // Alone, L means Saturday.
+                f.daysOfWeek |= 1L << 7;
+            } else if (hash > 0) {
+                f.nthDayOfWeek = Integer.parseInt(item.substring(hash + 1));
+                f.daysOfWeek |= 1L << dayOfWeek(item.substring(0, hash));
+            } else if (item.length() > 1 && item.endsWith("L")) {
+                f.lastDayOfWeek = true;
+                f.daysOfWeek |=
+                        1L << dayOfWeek(item.substring(0, item.length() - 1));
+            } else {
+                f.daysOfWeek |= parseItem(item, 1, 7, DAY_OF_WEEK_NAMES);
+            }
+        }
+    }
+
+    private static long[] parseYears(final String field) {
+        final int count = CronExpression.MAX_YEAR - MIN_YEAR + 1;
+        final var years = new long[(count + Long.SIZE - 1) / Long.SIZE];
+        for (final var item : field.split(",", -1)) {
+            final var range =
+                    parseRange(item, MIN_YEAR, CronExpression.MAX_YEAR, null);
+            if (range[1] < range[0]) {
+                throw new IllegalArgumentException(item);
+            }
+            final int end = Math.min(range[1], CronExpression.MAX_YEAR);
+            for (int y = range[0]; y <= end; y += range[2]) {
+                final int idx = y - MIN_YEAR;
+                if (idx >= 0) {
+                    years[idx / Long.SIZE] |= 1L << idx;
+                }
+            }
+        }
+        return years;
+    }
+
+    private static int dayOfWeek(final String value) {
+        final int dow = parseValue(value, DAY_OF_WEEK_NAMES);
+        if (dow < 1 || dow > 7) {
+            throw new IllegalArgumentException(value);
+        }
+        return dow;
+    }
+
+    /**
+     * Parses one comma-separated item of a plain field into a mask. Like
+     * Quartz, a range whose end precedes its start wraps around the field's
+     * maximum.
+     */
+    private static long parseItem(
+            final String item,
+            final int min,
+            final int max,
+            @Nullable final String[] names) {
+        final var range = parseRange(item, min, max, names);
+        final int start = range[0];
+        final int step = range[2];
+        final int span = max - min + 1;
+        final int end = range[1] < start ? range[1] + span : range[1];
+        long mask = 0;
+        for (int i = start; i <= end; i += step) {
+            final int v = i > max ? i - span : i;
+            if (v < min || v > max) {
+                throw new IllegalArgumentException(item);
+            }
+            mask |= 1L << v;
+        }
+        return mask;
+    }
+
+    /** Returns {@code [start, end, step]}. */
+    private static int[] parseRange(
+            final String item,
+            final int min,
+            final int max,
+            @Nullable final String[] names) {
+        int slash = item.indexOf('/');
+        final var base = slash < 0 ? item : item.substring(0, slash);
+        if (names != null
+                && !base.isEmpty()
+                && Character.isLetter(base.charAt(0))) {
+            // Quartz ignores the step after a name: "MON-FRI/2" is "MON-FRI"
+            // and "JUL/3" is just July.
+            slash = -1;
+        }
+        final int step =
+                slash < 0 ? 1 : Integer.parseInt(item.substring(slash + 1));
+        if (step < 1) {
+            throw new IllegalArgumentException(item);
+        }
+        if ("*".equals(base) || base.isEmpty()) {
+            return new int[] {min, max, step};
+        }
+        final int dash = base.indexOf('-');
+        if (dash < 0) {
+            final int value = parseValue(base, names);
+            // "5/10" runs to the end of the field, "5" is just 5.
+            return new int[] {value, slash < 0 ? value : max, step};
+        }
+        return new int[] {
+            parseValue(base.substring(0, dash), names),
+            parseValue(base.substring(dash + 1), names),
+            step
+        };
+    }
+
+    private static int parseValue(
+            final String value, @Nullable final String[] names) {
+        if (names != null) {
+            for (int i = 0; i < names.length; ++i) {
+                if (names[i].equals(value)) {
+                    // Both months and days of week are 1-indexed.
+                    return i + 1;
+                }
+            }
+        }
+        return Integer.parseInt(value);
+    }
+
+    /** Mutable scratch space for the compiler. */
+    private static final class Fields {
+        long seconds;
+        long minutes;
+        long hours;
+        long daysOfMonth;
+        long months;
+        long daysOfWeek;
+        long[] years;
+        boolean dayOfMonthUnspecified;
+        boolean lastDayOfMonth;
+        int lastDayOffset;
+        boolean nearestWeekday;
+        boolean lastDayOfWeek;
+        int nthDayOfWeek;
+    }
+}
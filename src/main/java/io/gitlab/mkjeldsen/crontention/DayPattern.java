@@ -0,0 +1,72 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static io.gitlab.mkjeldsen.crontention.CronSchedule.MINUTES_PER_DAY;
+
+import java.time.LocalDate;
+import java.util.function.IntConsumer;
+
+/**
+ * The minutes of one day a single expression fires in, as a 1,440-bit mask,
+ * and how many times it fires within each of those minutes. Instances are
+ * immutable so one expression's pattern can be shared by every request that
+ * contains the expression and evaluates the same date.
+ */
+final class DayPattern {
+
+    static final int WORDS = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    /** The pattern of an expression that does not fire on a date. */
+    static final DayPattern NONE = new DayPattern(new long[WORDS], 0);
+
+    private final long[] minutes;
+
+    /** The number of fire-times within each minute of the pattern. */
+    final int firesPerMinute;
+
+    private DayPattern(final long[] minutes, final int firesPerMinute) {
+        this.minutes = minutes;
+        this.firesPerMinute = firesPerMinute;
+    }
+
+    static DayPattern of(final CronSchedule schedule, final LocalDate date) {
+        return schedule.firesOn(date) ? intraDay(schedule) : NONE;
+    }
+
+    /**
+     * The pattern of {@code schedule} on any day it fires at all. Only the
+     * second, minute and hour fields decide it; the date fields only decide
+     * whether it applies.
+     */
+    static DayPattern intraDay(final CronSchedule schedule) {
+        final int firesPerMinute = schedule.firesPerMinute();
+        if (firesPerMinute == 0) {
+            return NONE;
+        }
+        final var minutes = new long[WORDS];
+        schedule.forEachMinuteOfDay(
+                minute -> minutes[minute / Long.SIZE] |= 1L << minute);
+        return new DayPattern(minutes, firesPerMinute);
+    }
+
+    /**
+     * The mask itself, bit {@code m} of word {@code m / 64} for minute {@code
+     * m}. Callers must not modify it.
+     */
+    long[] words() {
+        return minutes;
+    }
+
+    boolean isEmpty() {
+        return firesPerMinute == 0;
+    }
+
+    /** Feeds every minute of the day in this pattern, in ascending order. */
+    void forEachMinute(final IntConsumer action) {
+        for (int w = 0; w < WORDS; ++w) {
+            final int base = w * Long.SIZE;
+            for (long word = minutes[w]; word != 0; word &= word - 1) {
+                action.accept(base + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+}
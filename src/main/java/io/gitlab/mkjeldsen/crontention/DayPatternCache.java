@@ -0,0 +1,63 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Caches the {@link DayPattern} of individual expressions so requests can be
+ * composed from the patterns of their lines. Editing one line of a large
+ * configuration then only costs the evaluation of that line.
+ */
+public final class DayPatternCache {
+
+    private final Cache<Key, DayPattern> cache;
+
+    public DayPatternCache(final long maximumSize) {
+        this.cache =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterAccess(Duration.ofHours(1))
+                        .build();
+    }
+
+    DayPattern get(
+            final ExpressionInput input,
+            final CronSchedule schedule,
+            final LocalDate date) {
+        return cache.get(
+                new Key(CronSchedule.normalize(input.expression), date),
+                k -> DayPattern.of(schedule, date));
+    }
+
+    static final class Key {
+
+        final String expression;
+
+        final LocalDate date;
+
+        Key(final String expression, final LocalDate date) {
+            this.expression = expression;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return expression.equals(key.expression) && date.equals(key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(expression, date);
+        }
+    }
+}
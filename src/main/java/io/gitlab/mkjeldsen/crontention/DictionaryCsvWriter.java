@@ -0,0 +1,149 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import io.gitlab.mkjeldsen.crontention.csv.StreamingCsv;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import org.wildfly.common.annotation.Nullable;
+
+/**
+ * Writes fire-times with every distinct expression listed once, up front, and
+ * every minute referring to the expressions that fire in it by index. An
+ * expression that fires every minute is then written once instead of 1,440
+ * times.
+ *
+ * <p>The document has two sections separated by an empty line. The first has
+ * one {@code expression} per record; its index is its position, from 0. The
+ * second has the columns of the plain form but {@code members} instead of
+ * {@code expressions}: the indices of the expressions of the minute in
+ * ascending order, separated by spaces, each written as the difference to the
+ * one before it.
+ */
+public final class DictionaryCsvWriter implements Consumer<StreamingCsv> {
+
+    private static final String[] DICTIONARY_HEADER = {"expression"};
+
+    private static final String[] MINUTE_HEADER = {
+        "key", "h", "m", "count", "members"
+    };
+
+    private final Collection<FireTime> fireTimes;
+
+    public DictionaryCsvWriter(final Collection<FireTime> fireTimes) {
+        this.fireTimes = fireTimes;
+    }
+
+    @Override
+    public void accept(final StreamingCsv csv) {
+        final var dictionary = sharedDictionary();
+        if (dictionary == null) {
+            writeByText(csv);
+        } else {
+            writeByIndex(csv, dictionary);
+        }
+    }
+
+    /**
+     * The dictionary every fire-time indexes into, or {@code null} if some
+     * fire-time holds strings or they do not all share one.
+     */
+    @Nullable
+    private List<String> sharedDictionary() {
+        List<String> shared = null;
+        for (final var fireTime : fireTimes) {
+            if (fireTime.dictionary == null
+                    || (shared != null && shared != fireTime.dictionary)) {
+                return null;
+            }
+            shared = fireTime.dictionary;
+        }
+        return shared;
+    }
+
+    /**
+     * Writes the entries of {@code dictionary} some fire-time lists, in
+     * dictionary order, and renumbers members without looking their strings
+     * up. Renumbering keeps that order so members stay ascending.
+     */
+    private void writeByIndex(
+            final StreamingCsv csv, final List<String> dictionary) {
+        final var listed = new boolean[dictionary.size()];
+        for (final var fireTime : fireTimes) {
+            for (final int member : fireTime.members) {
+                listed[member] = true;
+            }
+        }
+
+        final var indices = new int[dictionary.size()];
+        int next = 0;
+        csv.header(DICTIONARY_HEADER);
+        for (int i = 0; i < listed.length; ++i) {
+            if (listed[i]) {
+                final var expression = dictionary.get(i);
+                csv.record(record -> record.quoteField(expression));
+                indices[i] = next++;
+            }
+        }
+
+        csv.record(record -> {});
+        csv.header(MINUTE_HEADER);
+        for (final var fireTime : fireTimes) {
+            final var sorted = new int[fireTime.members.length];
+            for (int i = 0; i < sorted.length; ++i) {
+                sorted[i] = indices[fireTime.members[i]];
+            }
+            writeMinute(csv, fireTime, sorted);
+        }
+    }
+
+    /** Numbers expressions by first appearance, looking each one up. */
+    private void writeByText(final StreamingCsv csv) {
+        final var indices = new HashMap<String, Integer>();
+        csv.header(DICTIONARY_HEADER);
+        for (final var fireTime : fireTimes) {
+            for (final var expression : fireTime.expressions) {
+                if (indices.putIfAbsent(expression, indices.size()) == null) {
+                    csv.record(record -> record.quoteField(expression));
+                }
+            }
+        }
+
+        csv.record(record -> {});
+        csv.header(MINUTE_HEADER);
+        for (final var fireTime : fireTimes) {
+            final var sorted = new int[fireTime.expressions.size()];
+            int i = 0;
+            for (final var expression : fireTime.expressions) {
+                sorted[i++] = indices.get(expression);
+            }
+            Arrays.sort(sorted);
+            writeMinute(csv, fireTime, sorted);
+        }
+    }
+
+    private static void writeMinute(
+            final StreamingCsv csv,
+            final FireTime fireTime,
+            final int[] sorted) {
+        final var members = members(sorted);
+        csv.record(
+                record -> {
+                    ContentionCsvRecordWriter.writeCount(record, fireTime);
+                    record.field(members);
+                });
+    }
+
+    private static String members(final int[] sorted) {
+        final var members = new StringBuilder(sorted.length * 3);
+        for (int i = 0; i < sorted.length; ++i) {
+            if (i == 0) {
+                members.append(sorted[0]);
+            } else {
+                members.append(' ').append(sorted[i] - sorted[i - 1]);
+            }
+        }
+        return members.toString();
+    }
+}
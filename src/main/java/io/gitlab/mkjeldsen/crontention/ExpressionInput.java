@@ -1,73 +1,101 @@
 package io.gitlab.mkjeldsen.crontention;
 
 import java.text.ParseException;
-import java.time.ZoneOffset;
-import java.util.TimeZone;
+import java.util.Arrays;
 import org.quartz.CronExpression;
 import org.wildfly.common.annotation.Nullable;
 
 public final class ExpressionInput {
 
-    private static final TimeZone UTC = TimeZone.getTimeZone(ZoneOffset.UTC);
     private static final int IDX_DOW_END = 11;
     private static final int IDX_YEAR_START = 12;
     private static final int IDX_YEAR_END = 13;
     private static final int IDX_CMD_START = 14;
     private static final int IDX_CMD_END = 15;
 
+    private static final String DURATION_UNITS = "smh";
+
+    private static final ThreadLocal<int[]> BOUNDARIES =
+            ThreadLocal.withInitial(() -> new int[IDX_CMD_END + 1]);
+
+    /**
+     * Longer durations would overlap the next day's fire-times of the same
+     * job, or days beyond.
+     */
+    static final int MAX_DURATION_SECONDS = 24 * 60 * 60;
+
     /** The raw input this instance was constructed from. */
     public final String input;
 
     /**
      * The part of {@link #input} parsed as the Quartz cron expression and used
-     * to construct {@link #cron} with.
+     * to construct {@link #cron()} with.
      */
     public final String expression;
 
     /**
      * The part of {@link #input} parsed as the command associated with the cron
      * expression, not recognized by {@link CronExpression} and not included in
-     * {@link #cron}.
+     * {@link #cron()}.
      */
     @Nullable
     public final String command;
 
     /**
-     * The Quartz {@code CronExpression} constructed from {@link #expression}.
+     * How long the job runs, in seconds, from a trailing {@code @5m} style
+     * annotation after the command, or {@code 0} if there is none. The
+     * annotation is not part of {@link #command}.
+     */
+    public final int durationSeconds;
+
+    /**
+     * {@link #expression} compiled for direct enumeration, or {@code null} if
+     * {@link CronSchedule} does not support the expression and {@link #cron()}
+     * must be used instead.
+     */
+    @Nullable
+    final CronSchedule schedule;
+
+    /**
+     * The minutes of the day {@link #schedule} fires in when they form an
+     * arithmetic progression, such as for {@code 0 0/5 * * * ?}, or {@code
+     * null} for any other shape.
      */
-    public final CronExpression cron;
+    @Nullable
+    final MinuteProgression progression;
 
     private ExpressionInput(
             final String input,
-            final String command,
+            @Nullable final String command,
+            final int durationSeconds,
             final String expression,
-            final CronExpression cron) {
+            final CompiledExpression compiled) {
         this.input = input;
         this.command = command;
+        this.durationSeconds = durationSeconds;
         this.expression = expression;
-        this.cron = cron;
+        this.schedule = compiled.schedule;
+        this.progression = compiled.progression;
     }
 
     public static ExpressionInput parse(final String input)
             throws ParseException {
         // A 2-step list of [start; end) indices to each possible part in input.
         // Inspecting it in reverse shows which optional end parts are missing.
-        // Note that the year part can contain a command!
-        final int[] boundaries = new int[IDX_CMD_END + 1];
+        // Note that the year part can contain a command! The array is reused
+        // by every parse on the same thread so parsing only allocates the
+        // parts it keeps.
+        final int[] boundaries = BOUNDARIES.get();
         int boundaryIdx = 0;
 
         // Whether we're currently parsing a part or a part separator.
         boolean inExpressionPart = false;
 
-        final char[] chars = input.toCharArray();
-        for (int i = 0;
-                i < chars.length && boundaryIdx < boundaries.length;
-                ++i) {
-            final char c = chars[i];
-
+        final int length = input.length();
+        for (int i = 0; i < length && boundaryIdx < boundaries.length; ++i) {
             // In Quartz, parts are separated by one or more spaces or tabs.
             // Standard-form tolerates only a single space.
-            if (c == ' ' || c == '\t') {
+            if (isBlank(input.charAt(i))) {
                 // If we think we're in a part it means it just ended. Flip
                 // state and record an end boundary.
                 if (inExpressionPart) {
@@ -84,45 +112,138 @@ public final class ExpressionInput {
                 boundaries[boundaryIdx++] = i;
             }
         }
+        // Left over from the previous parse.
+        Arrays.fill(boundaries, boundaryIdx, boundaries.length, 0);
+
+        // Lines are taken as given, so trailing blanks end neither the year
+        // part nor the command.
+        int end = length;
+        while (end > 0 && isBlank(input.charAt(end - 1))) {
+            --end;
+        }
 
         final String expression;
-        final String command;
+        final int commandStart;
         if (boundaries[IDX_YEAR_START] == 0) {
             // Neither year nor command parts.
             expression = input;
-            command = null;
+            commandStart = -1;
         } else if (boundaries[IDX_CMD_START] == 0) {
             // Missing either year part or command part. Which is it?
-            final var yearOrCmd = input.substring(boundaries[IDX_YEAR_START]);
-            assert !yearOrCmd.isEmpty() : "empty [year-start; year-end)";
+            final int yearStart = boundaries[IDX_YEAR_START];
+            assert yearStart < end : "empty [year-start; year-end)";
 
-            if (looksLikeYearPart(yearOrCmd)) {
+            if (looksLikeYearPart(input, yearStart, end)) {
                 expression = input;
-                command = null;
+                commandStart = -1;
             } else {
                 expression = input.substring(0, boundaries[IDX_DOW_END]);
-                command = yearOrCmd;
+                commandStart = yearStart;
             }
         } else {
             // Both year and command parts; but the year part could be the first
             // piece of a composite command.
-            final var yearOrCmd =
-                    input.substring(
-                            boundaries[IDX_YEAR_START],
-                            boundaries[IDX_YEAR_END]);
-            assert !yearOrCmd.isEmpty() : "empty [year-start; year-end)";
-
-            if (looksLikeYearPart(yearOrCmd)) {
-                expression = input.substring(0, boundaries[IDX_YEAR_END]);
-                command = input.substring(boundaries[IDX_CMD_START]);
+            final int yearStart = boundaries[IDX_YEAR_START];
+            final int yearEnd = boundaries[IDX_YEAR_END];
+            assert yearStart < yearEnd : "empty [year-start; year-end)";
+
+            if (looksLikeYearPart(input, yearStart, yearEnd)) {
+                expression = input.substring(0, yearEnd);
+                commandStart = boundaries[IDX_CMD_START];
             } else {
                 expression = input.substring(0, boundaries[IDX_DOW_END]);
-                command = input.substring(boundaries[IDX_YEAR_START]);
+                commandStart = yearStart;
             }
         }
 
+        final var compiled = CompiledExpression.of(expression);
+        if (commandStart < 0) {
+            return new ExpressionInput(input, null, 0, expression, compiled);
+        }
+
+        final int durationStart = durationStart(input, commandStart, end);
+        if (durationStart < 0) {
+            final var command = input.substring(commandStart, end);
+            return new ExpressionInput(input, command, 0, expression, compiled);
+        }
+
+        final int durationSeconds = parseDuration(input, durationStart, end);
+        int commandEnd = durationStart;
+        while (commandEnd > commandStart
+                && isBlank(input.charAt(commandEnd - 1))) {
+            --commandEnd;
+        }
         return new ExpressionInput(
-                input, command, expression, toCron(expression));
+                input,
+                commandEnd == commandStart
+                        ? null
+                        : input.substring(commandStart, commandEnd),
+                durationSeconds,
+                expression,
+                compiled);
+    }
+
+    /**
+     * Finds a trailing {@code @<digits><unit>} token in the command of {@code
+     * input}, which is {@code [commandStart; end)}.
+     *
+     * @return the index of its {@code @}, or {@code -1} if there is none.
+     */
+    private static int durationStart(
+            final String input, final int commandStart, final int end) {
+        int i = end - 1;
+        if (i < commandStart || DURATION_UNITS.indexOf(input.charAt(i)) < 0) {
+            return -1;
+        }
+        --i;
+        final int lastDigit = i;
+        while (i >= commandStart && isDigit(input.charAt(i))) {
+            --i;
+        }
+        if (i == lastDigit || i < commandStart || input.charAt(i) != '@') {
+            return -1;
+        }
+        // "foo@5m" is a command, not an annotation.
+        if (i > commandStart && !isBlank(input.charAt(i - 1))) {
+            return -1;
+        }
+        return i;
+    }
+
+    /** Parses the duration token {@code [start; end)} to seconds. */
+    private static int parseDuration(
+            final String input, final int start, final int end)
+            throws ParseException {
+        final int unitIdx = end - 1;
+        // Stop before overflowing; anything this large is rejected anyway.
+        long amount = 0;
+        for (int i = start + 1;
+                i < unitIdx && amount <= MAX_DURATION_SECONDS;
+                ++i) {
+            amount = amount * 10 + (input.charAt(i) - '0');
+        }
+        final char unit = input.charAt(unitIdx);
+        final long seconds =
+                unit == 'h'
+                        ? amount * 3600
+                        : unit == 'm' ? amount * 60 : amount;
+        if (seconds < 1 || seconds > MAX_DURATION_SECONDS) {
+            throw new ParseException(
+                    "Duration must be from 1s to 24h, was "
+                            + input.substring(start, end)
+                            + '.',
+                    start);
+        }
+        return (int) seconds;
+    }
+
+    /**
+     * Constructs a new Quartz {@code CronExpression} from {@link #expression},
+     * in UTC. Every call returns a new instance because {@code CronExpression}
+     * is mutable; prefer {@link #schedule} where available.
+     */
+    public CronExpression cron() {
+        return CompiledExpression.toCron(expression);
     }
 
     @Override
@@ -142,9 +263,19 @@ public final class ExpressionInput {
         return input.hashCode();
     }
 
-    private static boolean looksLikeYearPart(final String yearOrCmd) {
-        for (final char c : yearOrCmd.toCharArray()) {
-            switch (c) {
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isBlank(final char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /** Whether {@code input} in {@code [from; to)} is a Quartz year part. */
+    private static boolean looksLikeYearPart(
+            final String input, final int from, final int to) {
+        for (int i = from; i < to; ++i) {
+            switch (input.charAt(i)) {
                 case '*':
                 case ',':
                 case '-':
@@ -166,11 +297,4 @@ public final class ExpressionInput {
         }
         return true;
     }
-
-    private static CronExpression toCron(final String expr)
-            throws ParseException {
-        final var cron = new CronExpression(expr);
-        cron.setTimeZone(UTC);
-        return cron;
-    }
 }
@@ -1,8 +1,13 @@
 package io.gitlab.mkjeldsen.crontention;
 
 import java.time.Instant;
+import java.util.AbstractSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import org.wildfly.common.annotation.Nullable;
 
 public final class FireTime {
 
@@ -12,8 +17,84 @@ public final class FireTime {
 
     public long count;
 
+    /**
+     * What {@link #members} index into, or {@code null} if {@link
+     * #expressions} holds the strings themselves.
+     */
+    @Nullable
+    final List<String> dictionary;
+
+    /**
+     * The indices into {@link #dictionary} of {@link #expressions}, distinct
+     * and ascending, or {@code null} if there is no dictionary.
+     */
+    @Nullable
+    final int[] members;
+
     public FireTime(final Instant when) {
         this.when = when;
         this.expressions = new HashSet<>();
+        this.dictionary = null;
+        this.members = null;
+    }
+
+    /**
+     * A fire-time of the expressions at {@code members} in {@code
+     * dictionary}. They are kept as the indices and only resolved to strings
+     * when {@link #expressions} is read, so a day of fire-times holds one
+     * {@code int} per expression and minute rather than a hash set node. The
+     * expressions cannot be modified.
+     *
+     * @param members distinct indices, ascending; iteration follows them.
+     */
+    FireTime(
+            final Instant when,
+            final long count,
+            final List<String> dictionary,
+            final int[] members) {
+        this.when = when;
+        this.count = count;
+        this.expressions = new Members(dictionary, members);
+        this.dictionary = dictionary;
+        this.members = members;
+    }
+
+    /** Distinct dictionary entries, stored as their indices. */
+    private static final class Members extends AbstractSet<String> {
+
+        private final List<String> dictionary;
+
+        private final int[] indices;
+
+        Members(final List<String> dictionary, final int[] indices) {
+            this.dictionary = dictionary;
+            this.indices = indices;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < indices.length;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return dictionary.get(indices[next++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
     }
 }
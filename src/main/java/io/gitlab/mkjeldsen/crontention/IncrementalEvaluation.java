@@ -0,0 +1,447 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static io.gitlab.mkjeldsen.crontention.CronSchedule.MINUTES_PER_DAY;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import org.wildfly.common.annotation.Nullable;
+
+/**
+ * The evaluation of one configuration on one day, kept so that a later
+ * revision of the configuration can be evaluated from its added and removed
+ * lines alone. Every distinct line keeps the minutes it fires in and how
+ * often, so removing a line subtracts exactly what adding it added, and
+ * unchanged lines are never parsed or evaluated again.
+ *
+ * <p>Instances are immutable. Lines are kept in {@link IntTrie}s, so {@link
+ * #update} returns a new revision that shares every unchanged line, and most
+ * of what finds it, with this one. An edit then costs about as much as the
+ * lines it changes, and several revisions can be kept, and used
+ * concurrently.
+ *
+ * <p>Every line gets an id when it is added, in order of first appearance,
+ * and keeps it while it is in the configuration. The ids index the {@link
+ * FireTime} dictionary of a revision, which is kept with it rather than
+ * built for every response.
+ */
+public final class IncrementalEvaluation {
+
+    /** The approximate retained size of a revision without any lines. */
+    private static final int WEIGHT = 128 + 4 * MINUTES_PER_DAY;
+
+    /** The approximate retained size of a line beyond its minutes. */
+    private static final int LINE_WEIGHT = 96;
+
+    /** The approximate retained size of the trie entries of a line. */
+    private static final int INDEX_WEIGHT = 128;
+
+    /**
+     * Ids are not reused, so lines are renumbered once there are more ids
+     * than twice the lines plus this.
+     */
+    private static final int SPARE_IDS = 1024;
+
+    private final LocalDate date;
+
+    private final Instant dayStart;
+
+    /** Every distinct line by id. */
+    private final IntTrie<Line> lines;
+
+    /** The ids of every distinct line by the hash code of its text. */
+    private final IntTrie<int[]> idsByHash;
+
+    /** The id the next added line gets. */
+    private final int nextId;
+
+    /** The text of every line by id, for fire-times to index. */
+    private final List<String> dictionary;
+
+    /** The fire-time count of every minute of the day, over all lines. */
+    private final int[] counts;
+
+    /** The weight of every line. */
+    private final long weight;
+
+    private IncrementalEvaluation(
+            final LocalDate date,
+            final IntTrie<Line> lines,
+            final IntTrie<int[]> idsByHash,
+            final int nextId,
+            final int[] counts,
+            final long weight) {
+        this.date = date;
+        this.dayStart = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        this.lines = lines;
+        this.idsByHash = idsByHash;
+        this.nextId = nextId;
+        this.dictionary = new Dictionary(lines, nextId);
+        this.counts = counts;
+        this.weight = weight;
+    }
+
+    /**
+     * Evaluates the {@linkplain ContentionAggregator#splitLines(String)
+     * split} {@code lines} on {@code date}. Lines that fail to parse or
+     * evaluate are left out and reported in {@code errors}.
+     */
+    public static IncrementalEvaluation of(
+            final LocalDate date,
+            final List<String> lines,
+            @Nullable final DayPatternCache patterns,
+            final List<ExpressionErrorDetail> errors) {
+        final var empty =
+                new IncrementalEvaluation(
+                        date,
+                        IntTrie.empty(),
+                        IntTrie.empty(),
+                        0,
+                        new int[MINUTES_PER_DAY],
+                        0);
+        return empty.update(lines, List.of(), patterns, errors);
+    }
+
+    /** The date this evaluation covers. */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * The approximate retained size of this revision in bytes, counting lines
+     * it shares with other revisions too.
+     */
+    public int weight() {
+        return (int) Math.min(Integer.MAX_VALUE, WEIGHT + weight);
+    }
+
+    /**
+     * The lines of {@code removed} that this revision does not have, as many
+     * times over as they are missing. {@link #update} must not be given any.
+     */
+    public List<String> missing(final List<String> removed) {
+        final var times = new HashMap<String, Integer>();
+        final var missing = new ArrayList<String>();
+        for (final var text : removed) {
+            final int removals = times.merge(text, 1, Integer::sum);
+            final var line = find(lines, idsByHash, text);
+            if (line == null || removals > line.multiplicity) {
+                missing.add(text);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns a new revision with the {@code removed} lines taken away and the
+     * {@code added} lines evaluated and put in, in that order. Only lines that
+     * were not already in this revision are evaluated. Added lines that fail
+     * to parse or evaluate are left out and reported in {@code errors}.
+     *
+     * @throws IllegalArgumentException if a removed line is {@linkplain
+     *     #missing(List) missing}.
+     */
+    public IncrementalEvaluation update(
+            final List<String> added,
+            final List<String> removed,
+            @Nullable final DayPatternCache patterns,
+            final List<ExpressionErrorDetail> errors) {
+        final var edit = new Edit(this);
+        for (final var text : removed) {
+            final var line = edit.find(text);
+            if (line == null) {
+                throw new IllegalArgumentException("Missing line: " + text);
+            }
+            line.addTo(edit.counts, -1);
+            if (line.multiplicity == 1) {
+                edit.remove(line);
+            } else {
+                edit.replace(line.withMultiplicity(line.multiplicity - 1));
+            }
+        }
+
+        final var scratch = new int[MINUTES_PER_DAY];
+        for (final var text : added) {
+            var line = edit.find(text);
+            if (line == null) {
+                line = evaluate(edit.nextId, text, patterns, scratch, errors);
+                if (line == null) {
+                    continue;
+                }
+                edit.add(line);
+            } else {
+                line = line.withMultiplicity(line.multiplicity + 1);
+                edit.replace(line);
+            }
+            line.addTo(edit.counts, 1);
+        }
+        if (edit.nextId > 2 * edit.lines.size() + SPARE_IDS) {
+            edit.renumber();
+        }
+        return new IncrementalEvaluation(
+                date,
+                edit.lines,
+                edit.idsByHash,
+                edit.nextId,
+                edit.counts,
+                edit.weight);
+    }
+
+    /** The line of {@code text}, or {@code null} if there is none. */
+    @Nullable
+    private static Line find(
+            final IntTrie<Line> lines,
+            final IntTrie<int[]> idsByHash,
+            final String text) {
+        final var ids = idsByHash.get(text.hashCode());
+        if (ids != null) {
+            for (final int id : ids) {
+                final var line = lines.get(id);
+                if (line != null && line.text.equals(text)) {
+                    return line;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Line evaluate(
+            final int id,
+            final String text,
+            @Nullable final DayPatternCache patterns,
+            final int[] scratch,
+            final List<ExpressionErrorDetail> errors) {
+        final ExpressionInput input;
+        try {
+            input = ExpressionInput.parse(text);
+        } catch (final ParseException e) {
+            errors.add(new ExpressionErrorDetail(text, e));
+            return null;
+        }
+        Arrays.fill(scratch, 0);
+        try {
+            ContentionAggregator.countFireTimes(input, date, patterns, scratch);
+        } catch (final RuntimeException e) {
+            errors.add(new ExpressionErrorDetail(input, e));
+            return null;
+        }
+        return Line.of(id, text, scratch);
+    }
+
+    /**
+     * Materializes the minutes {@code selection} selects, in time order, like
+     * {@link ContentionAggregator#calculateFireTimes(DayPatternCache,
+     * BucketSelection)} would for the whole configuration.
+     */
+    public List<FireTime> toFireTimes(final BucketSelection selection) {
+        final var selected = selection.select(counts);
+        final var isSelected = new boolean[MINUTES_PER_DAY];
+        for (final int minute : selected) {
+            isSelected[minute] = true;
+        }
+        // The members are the response itself when every minute is
+        // selected, so they are gathered here rather than kept.
+        final var members = new MemberLists(MINUTES_PER_DAY);
+        lines.forEachValue(
+                line -> {
+                    for (final int minute : line.minutes) {
+                        if (isSelected[minute]) {
+                            members.add(minute, line.id);
+                        }
+                    }
+                });
+        final var fireTimes = new ArrayList<FireTime>(selected.length);
+        for (final int minute : selected) {
+            fireTimes.add(
+                    new FireTime(
+                            dayStart.plusSeconds(minute * 60L),
+                            counts[minute],
+                            dictionary,
+                            members.sorted(minute)));
+        }
+        return fireTimes;
+    }
+
+    /** One distinct line, the minutes it fires in, and how many it is. */
+    private static final class Line {
+
+        final int id;
+
+        final String text;
+
+        /** The minutes the line fires in, ascending. */
+        final int[] minutes;
+
+        /** The fire-times of one occurrence in each of {@link #minutes}. */
+        final int[] fires;
+
+        final int multiplicity;
+
+        private Line(
+                final int id,
+                final String text,
+                final int[] minutes,
+                final int[] fires,
+                final int multiplicity) {
+            this.id = id;
+            this.text = text;
+            this.minutes = minutes;
+            this.fires = fires;
+            this.multiplicity = multiplicity;
+        }
+
+        /** Keeps the non-zero minutes of {@code counts}. */
+        static Line of(final int id, final String text, final int[] counts) {
+            int size = 0;
+            for (final int count : counts) {
+                if (count != 0) {
+                    ++size;
+                }
+            }
+            final var minutes = new int[size];
+            final var fires = new int[size];
+            int i = 0;
+            for (int minute = 0; minute < counts.length; ++minute) {
+                if (counts[minute] != 0) {
+                    minutes[i] = minute;
+                    fires[i++] = counts[minute];
+                }
+            }
+            return new Line(id, text, minutes, fires, 1);
+        }
+
+        Line withMultiplicity(final int multiplicity) {
+            return new Line(id, text, minutes, fires, multiplicity);
+        }
+
+        Line withId(final int id) {
+            return new Line(id, text, minutes, fires, multiplicity);
+        }
+
+        /** Adds {@code sign} occurrences of this line to {@code counts}. */
+        void addTo(final int[] counts, final int sign) {
+            for (int i = 0; i < minutes.length; ++i) {
+                counts[minutes[i]] += sign * fires[i];
+            }
+        }
+
+        long weight() {
+            return LINE_WEIGHT
+                    + INDEX_WEIGHT
+                    + 2L * text.length()
+                    + 8L * minutes.length;
+        }
+    }
+
+    /** The lines of a revision being made, changed one at a time. */
+    private static final class Edit {
+
+        IntTrie<Line> lines;
+
+        IntTrie<int[]> idsByHash;
+
+        int nextId;
+
+        final int[] counts;
+
+        long weight;
+
+        Edit(final IncrementalEvaluation from) {
+            this.lines = from.lines;
+            this.idsByHash = from.idsByHash;
+            this.nextId = from.nextId;
+            this.counts = from.counts.clone();
+            this.weight = from.weight;
+        }
+
+        @Nullable
+        Line find(final String text) {
+            return IncrementalEvaluation.find(lines, idsByHash, text);
+        }
+
+        /** Puts in {@code line}, which has the next id. */
+        void add(final Line line) {
+            assert line.id == nextId : line.id;
+            ++nextId;
+            lines = lines.put(line.id, line);
+            final int hash = line.text.hashCode();
+            final var ids = idsByHash.get(hash);
+            if (ids == null) {
+                idsByHash = idsByHash.put(hash, new int[] {line.id});
+            } else {
+                final var more = Arrays.copyOf(ids, ids.length + 1);
+                more[ids.length] = line.id;
+                idsByHash = idsByHash.put(hash, more);
+            }
+            weight += line.weight();
+        }
+
+        /** Puts in {@code line} in place of the line with its id. */
+        void replace(final Line line) {
+            lines = lines.put(line.id, line);
+        }
+
+        void remove(final Line line) {
+            lines = lines.remove(line.id);
+            final int hash = line.text.hashCode();
+            final var ids = idsByHash.get(hash);
+            if (ids.length == 1) {
+                idsByHash = idsByHash.remove(hash);
+            } else {
+                final var fewer = new int[ids.length - 1];
+                int i = 0;
+                for (final int id : ids) {
+                    if (id != line.id) {
+                        fewer[i++] = id;
+                    }
+                }
+                idsByHash = idsByHash.put(hash, fewer);
+            }
+            weight -= line.weight();
+        }
+
+        /** Gives the lines consecutive ids from 0, keeping their order. */
+        void renumber() {
+            final var old = lines;
+            lines = IntTrie.empty();
+            idsByHash = IntTrie.empty();
+            nextId = 0;
+            weight = 0;
+            old.forEachValue(line -> add(line.withId(nextId)));
+        }
+    }
+
+    /** The text of every line by id, with {@code null} for unused ids. */
+    private static final class Dictionary extends AbstractList<String> {
+
+        private final IntTrie<Line> lines;
+
+        private final int size;
+
+        Dictionary(final IntTrie<Line> lines, final int size) {
+            this.lines = lines;
+            this.size = size;
+        }
+
+        @Nullable
+        @Override
+        public String get(final int index) {
+            Objects.checkIndex(index, size);
+            final var line = lines.get(index);
+            return line == null ? null : line.text;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
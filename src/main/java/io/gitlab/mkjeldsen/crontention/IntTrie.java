@@ -0,0 +1,217 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.wildfly.common.annotation.Nullable;
+
+/**
+ * An immutable map from {@code int} keys to values. Changes copy only the
+ * path to the changed key, so every version shares the rest of its nodes with
+ * the one it was made from and a change costs a handful of small arrays
+ * however large the map is.
+ *
+ * <p>Each level of the trie takes the next five bits of the key, most
+ * significant first, so values are visited in ascending order of their keys
+ * as unsigned integers. A key is kept at the shallowest level it does not
+ * share with another key.
+ */
+final class IntTrie<V> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** The shift of the root level, which only takes the top two bits. */
+    private static final int ROOT_SHIFT = 30;
+
+    private static final IntTrie<?> EMPTY =
+            new IntTrie<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+
+    private final int size;
+
+    private IntTrie(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> IntTrie<V> empty() {
+        return (IntTrie<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V get(final int key) {
+        var node = root;
+        for (int shift = ROOT_SHIFT; ; shift -= BITS) {
+            final int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            final var slot = node.slots[node.index(bit)];
+            if (slot instanceof Entry) {
+                final var entry = (Entry) slot;
+                return entry.key == key ? (V) entry.value : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    /** This with {@code key} mapped to {@code value}. */
+    IntTrie<V> put(final int key, final V value) {
+        final int added = get(key) == null ? 1 : 0;
+        return new IntTrie<>(
+                put(root, ROOT_SHIFT, new Entry(key, value)), size + added);
+    }
+
+    /** This without {@code key}, or this if it has no {@code key}. */
+    IntTrie<V> remove(final int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        final var rest = remove(root, ROOT_SHIFT, key);
+        final Node root;
+        if (rest == null) {
+            root = EMPTY.root;
+        } else if (rest instanceof Entry) {
+            // The root holds the last entry directly.
+            final var entry = (Entry) rest;
+            root = new Node(bit(entry.key, ROOT_SHIFT), new Object[] {entry});
+        } else {
+            root = (Node) rest;
+        }
+        return new IntTrie<>(root, size - 1);
+    }
+
+    /** Feeds every value in ascending order of its key. */
+    void forEachValue(final Consumer<? super V> action) {
+        forEachValue(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEachValue(
+            final Node node, final Consumer<? super V> action) {
+        for (final var slot : node.slots) {
+            if (slot instanceof Entry) {
+                action.accept((V) ((Entry) slot).value);
+            } else {
+                forEachValue((Node) slot, action);
+            }
+        }
+    }
+
+    private static Node put(final Node node, final int shift, final Entry e) {
+        final int bit = bit(e.key, shift);
+        final int i = node.index(bit);
+        if ((node.bitmap & bit) == 0) {
+            final var slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, i);
+            slots[i] = e;
+            System.arraycopy(
+                    node.slots, i, slots, i + 1, node.slots.length - i);
+            return new Node(node.bitmap | bit, slots);
+        }
+        final var slot = node.slots[i];
+        final Object replacement;
+        if (slot instanceof Node) {
+            replacement = put((Node) slot, shift - BITS, e);
+        } else if (((Entry) slot).key == e.key) {
+            replacement = e;
+        } else {
+            replacement = split((Entry) slot, e, shift - BITS);
+        }
+        return node.with(i, replacement);
+    }
+
+    /** A node at {@code shift} holding two entries with different keys. */
+    private static Node split(final Entry a, final Entry b, final int shift) {
+        final int bitA = bit(a.key, shift);
+        final int bitB = bit(b.key, shift);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[] {split(a, b, shift - BITS)});
+        }
+        final var slots =
+                Integer.compareUnsigned(bitA, bitB) < 0
+                        ? new Object[] {a, b}
+                        : new Object[] {b, a};
+        return new Node(bitA | bitB, slots);
+    }
+
+    /**
+     * The rest of {@code node} without {@code key}: {@code null} if nothing
+     * is left, the {@link Entry} if only one is, or else a {@link Node}.
+     */
+    @Nullable
+    private static Object remove(
+            final Node node, final int shift, final int key) {
+        final int bit = bit(key, shift);
+        final int i = node.index(bit);
+        final var slot = node.slots[i];
+        if (slot instanceof Node) {
+            final var rest = remove((Node) slot, shift - BITS, key);
+            if (rest != null) {
+                if (rest instanceof Entry && node.slots.length == 1) {
+                    // Pull a lone entry up to where it no longer shares bits.
+                    return rest;
+                }
+                return node.with(i, rest);
+            }
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        final var slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, i);
+        System.arraycopy(node.slots, i + 1, slots, i, slots.length - i);
+        if (slots.length == 1 && slots[0] instanceof Entry) {
+            return slots[0];
+        }
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    private static int bit(final int key, final int shift) {
+        return 1 << ((key >>> shift) & MASK);
+    }
+
+    private static final class Node {
+
+        /** Which of the 32 slots this level could have are present. */
+        final int bitmap;
+
+        /** An {@link Entry} or a {@link Node} for each bit of the bitmap. */
+        final Object[] slots;
+
+        Node(final int bitmap, final Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node with(final int i, final Object slot) {
+            final var slots = Arrays.copyOf(this.slots, this.slots.length);
+            slots[i] = slot;
+            return new Node(bitmap, slots);
+        }
+    }
+
+    private static final class Entry {
+
+        final int key;
+
+        final Object value;
+
+        Entry(final int key, final Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of dictionary indices for each of a fixed number of
+ * buckets, for collecting the members of fire-times before they are created.
+ * Lists hold plain {@code int}s and only grow for buckets that get members.
+ */
+final class MemberLists {
+
+    private static final int[] EMPTY = {};
+
+    private final int[][] lists;
+
+    private final int[] sizes;
+
+    MemberLists(final int buckets) {
+        this.lists = new int[buckets][];
+        this.sizes = new int[buckets];
+        Arrays.fill(lists, EMPTY);
+    }
+
+    void add(final int bucket, final int member) {
+        final int size = sizes[bucket];
+        var list = lists[bucket];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, size * 2));
+            lists[bucket] = list;
+        }
+        list[size] = member;
+        sizes[bucket] = size + 1;
+    }
+
+    /** The members of {@code bucket}, ascending. */
+    int[] sorted(final int bucket) {
+        final var sorted = Arrays.copyOf(lists[bucket], sizes[bucket]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
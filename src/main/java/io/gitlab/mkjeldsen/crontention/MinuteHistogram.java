@@ -0,0 +1,248 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static io.gitlab.mkjeldsen.crontention.CronSchedule.MINUTES_PER_DAY;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fire-time counts for each minute of one day, indexed by minute of the day.
+ * Alongside the counts, each minute records which inputs fired in it as
+ * indices into a dictionary of distinct input lines the caller owns. A day
+ * has a fixed number of minutes so this replaces a map of boxed keys and
+ * per-bucket objects with a handful of arrays, and it yields fire-times in
+ * time order for free. Whole day patterns are counted by a {@link
+ * BitSlicedCounter} instead, and folded into the counts only when the day is
+ * materialized.
+ */
+final class MinuteHistogram {
+
+    private static final int[] NO_MEMBERS = {};
+
+    private final int[] counts;
+
+    private final int[][] members;
+
+    private final int[] memberCounts;
+
+    private final BitSlicedCounter patternCounts;
+
+    MinuteHistogram() {
+        this.counts = new int[MINUTES_PER_DAY];
+        this.patternCounts = new BitSlicedCounter();
+        this.members = new int[MINUTES_PER_DAY][];
+        this.memberCounts = new int[MINUTES_PER_DAY];
+        Arrays.fill(members, NO_MEMBERS);
+    }
+
+    /**
+     * Counts {@code fireTimes} fire-times in {@code minuteOfDay} and lists
+     * {@code newMembers} as firing in it. Members must not already be listed
+     * in the minute.
+     */
+    void add(
+            final int minuteOfDay,
+            final int fireTimes,
+            final int[] newMembers) {
+        counts[minuteOfDay] += fireTimes;
+        addMembers(minuteOfDay, newMembers);
+    }
+
+    private void addMembers(final int minuteOfDay, final int[] newMembers) {
+        final int size = memberCounts[minuteOfDay];
+        final int newSize = size + newMembers.length;
+        var ms = members[minuteOfDay];
+        if (newSize > ms.length) {
+            ms = Arrays.copyOf(ms, Math.max(size * 2, newSize));
+            members[minuteOfDay] = ms;
+        }
+        System.arraycopy(newMembers, 0, ms, size, newMembers.length);
+        memberCounts[minuteOfDay] = newSize;
+    }
+
+    /**
+     * Counts every fire-time in {@code pattern} {@code multiplicity} times and
+     * lists {@code newMembers} in each of its minutes.
+     */
+    void add(
+            final DayPattern pattern,
+            final int multiplicity,
+            final int[] newMembers) {
+        patternCounts.add(
+                pattern.words(), pattern.firesPerMinute * multiplicity);
+        pattern.forEachMinute(minute -> addMembers(minute, newMembers));
+    }
+
+    /**
+     * Counts every fire-time in {@code progression} {@code multiplicity} times
+     * and lists {@code newMembers} in each of its minutes.
+     */
+    void add(
+            final MinuteProgression progression,
+            final int multiplicity,
+            final int[] newMembers) {
+        final int fireTimes = progression.firesPerMinute * multiplicity;
+        final int step = progression.step;
+        int minute = progression.first;
+        for (int i = 0; i < progression.count; ++i, minute += step) {
+            add(minute, fireTimes, newMembers);
+        }
+    }
+
+    /** Adds every count and member of {@code other} to this histogram. */
+    void merge(final MinuteHistogram other) {
+        patternCounts.add(other.patternCounts);
+        for (int minute = 0; minute < MINUTES_PER_DAY; ++minute) {
+            final int otherSize = other.memberCounts[minute];
+            if (otherSize == 0) {
+                continue;
+            }
+            counts[minute] += other.counts[minute];
+            final int size = memberCounts[minute];
+            var ms = members[minute];
+            if (size + otherSize > ms.length) {
+                ms = Arrays.copyOf(ms, size + otherSize);
+                members[minute] = ms;
+            }
+            System.arraycopy(other.members[minute], 0, ms, size, otherSize);
+            memberCounts[minute] = size + otherSize;
+        }
+    }
+
+    /**
+     * Materializes every minute with at least one fire-time, in time order.
+     *
+     * @param dayStart the first instant of the day this histogram covers.
+     * @param dictionary the input lines members index into.
+     */
+    List<FireTime> toFireTimes(
+            final Instant dayStart, final List<String> dictionary) {
+        return toFireTimes(dayStart, dictionary, BucketSelection.ALL);
+    }
+
+    /**
+     * Materializes the minutes {@code selection} selects, in time order. Other
+     * minutes are skipped before their members are looked up.
+     *
+     * @param dayStart the first instant of the day this histogram covers.
+     * @param dictionary the input lines members index into.
+     * @param selection which minutes to materialize.
+     */
+    List<FireTime> toFireTimes(
+            final Instant dayStart,
+            final List<String> dictionary,
+            final BucketSelection selection) {
+        final var counts = dayCounts();
+        final var minutes = selection.select(counts);
+        final var fireTimes = new ArrayList<FireTime>(minutes.length);
+        for (final int minute : minutes) {
+            final var ms = Arrays.copyOf(members[minute], memberCounts[minute]);
+            Arrays.sort(ms);
+            fireTimes.add(
+                    new FireTime(
+                            dayStart.plusSeconds(minute * 60L),
+                            counts[minute],
+                            dictionary,
+                            ms));
+        }
+        return fireTimes;
+    }
+
+    /**
+     * Materializes the day rolled up into windows of each of {@code windows}
+     * minutes, such as {@code {1, 5, 15, 60}}, each window counting and
+     * listing every fire-time of its minutes. Every window size must be a
+     * multiple of the one before it and divide the day.
+     *
+     * <p>Every level of counts is summed from the level below it, so the whole
+     * pyramid costs little more than its finest level. Then one more pass over
+     * the minutes lists the members of the windows {@code selection} selects
+     * on each level.
+     *
+     * @return the fire-times of each level, in the order of {@code windows},
+     *     each level in time order.
+     */
+    List<List<FireTime>> toRollups(
+            final Instant dayStart,
+            final List<String> dictionary,
+            final int[] windows,
+            final BucketSelection selection) {
+        final var levelCounts = new int[windows.length][];
+        final var levelSelected = new int[windows.length][];
+        final var levelIsSelected = new boolean[windows.length][];
+        final var levelMembers = new MemberLists[windows.length];
+        var below = dayCounts();
+        int belowWindow = 1;
+        for (int level = 0; level < windows.length; ++level) {
+            final int window = windows[level];
+            final int ratio = window / belowWindow;
+            assert ratio * belowWindow == window : "not a multiple: " + window;
+            assert MINUTES_PER_DAY % window == 0 : "not a divisor: " + window;
+
+            final var counts = new int[below.length / ratio];
+            for (int i = 0; i < below.length; ++i) {
+                counts[i / ratio] += below[i];
+            }
+            levelCounts[level] = counts;
+            levelSelected[level] = selection.select(counts);
+            levelIsSelected[level] = new boolean[counts.length];
+            for (final int i : levelSelected[level]) {
+                levelIsSelected[level][i] = true;
+            }
+            levelMembers[level] = new MemberLists(counts.length);
+            below = counts;
+            belowWindow = window;
+        }
+
+        // A member fires in many minutes of a window but is listed once. The
+        // window a member was last listed in, plus one, on every level.
+        final var listedIn = new int[windows.length][dictionary.size()];
+        for (int minute = 0; minute < MINUTES_PER_DAY; ++minute) {
+            final int size = memberCounts[minute];
+            final var ms = members[minute];
+            for (int level = 0; size != 0 && level < windows.length; ++level) {
+                final int window = minute / windows[level];
+                if (!levelIsSelected[level][window]) {
+                    continue;
+                }
+                final var listed = listedIn[level];
+                for (int i = 0; i < size; ++i) {
+                    final int member = ms[i];
+                    if (listed[member] != window + 1) {
+                        listed[member] = window + 1;
+                        levelMembers[level].add(window, member);
+                    }
+                }
+            }
+        }
+
+        final var levels = new ArrayList<List<FireTime>>(windows.length);
+        for (int level = 0; level < windows.length; ++level) {
+            final int window = windows[level];
+            final var selected = levelSelected[level];
+            final var fireTimes = new ArrayList<FireTime>(selected.length);
+            for (final int i : selected) {
+                fireTimes.add(
+                        new FireTime(
+                                dayStart.plusSeconds(i * window * 60L),
+                                levelCounts[level][i],
+                                dictionary,
+                                levelMembers[level].sorted(i)));
+            }
+            levels.add(fireTimes);
+        }
+        return levels;
+    }
+
+    /**
+     * The fire-time count of every minute. Leaves this histogram as is; a day
+     * may be materialized repeatedly.
+     */
+    private int[] dayCounts() {
+        final var counts = this.counts.clone();
+        patternCounts.addTo(counts);
+        return counts;
+    }
+}
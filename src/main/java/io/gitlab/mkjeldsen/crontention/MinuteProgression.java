@@ -0,0 +1,34 @@
+package io.gitlab.mkjeldsen.crontention;
+
+/**
+ * The minutes of the day a schedule fires in, when they form an arithmetic
+ * progression: every fifth minute, minute 15 of every other hour, and so on.
+ * Most real expressions have this shape, and their day can be written into a
+ * histogram by stepping through it, without a {@link DayPattern} to build or
+ * look up.
+ */
+final class MinuteProgression {
+
+    /** The first minute of the day. */
+    final int first;
+
+    /** The distance between consecutive minutes. */
+    final int step;
+
+    /** The number of minutes. */
+    final int count;
+
+    /** The number of fire-times within each minute. */
+    final int firesPerMinute;
+
+    MinuteProgression(
+            final int first,
+            final int step,
+            final int count,
+            final int firesPerMinute) {
+        this.first = first;
+        this.step = step;
+        this.count = count;
+        this.firesPerMinute = firesPerMinute;
+    }
+}
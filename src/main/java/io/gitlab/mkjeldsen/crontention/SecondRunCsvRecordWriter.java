@@ -0,0 +1,41 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import io.gitlab.mkjeldsen.crontention.csv.ShittyCsv.Record;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * Writes a run of consecutive seconds that share one fire-time count: its
+ * first second, how many seconds it spans, and the count.
+ */
+public final class SecondRunCsvRecordWriter implements Consumer<Record> {
+
+    private static final DateTimeFormatter DATA_KEY_FORMATTER =
+            DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final int secondOfDay;
+
+    private final int length;
+
+    private final int count;
+
+    public SecondRunCsvRecordWriter(
+            final int secondOfDay, final int length, final int count) {
+        this.secondOfDay = secondOfDay;
+        this.length = length;
+        this.count = count;
+    }
+
+    @Override
+    public void accept(final Record rec) {
+        final var time = LocalTime.ofSecondOfDay(secondOfDay);
+
+        rec.field(DATA_KEY_FORMATTER.format(time));
+        rec.field(time.getHour());
+        rec.field(time.getMinute());
+        rec.field(time.getSecond());
+        rec.field(length);
+        rec.field(count);
+    }
+}
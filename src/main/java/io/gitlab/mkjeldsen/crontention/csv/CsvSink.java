@@ -0,0 +1,13 @@
+package io.gitlab.mkjeldsen.crontention.csv;
+
+/** Where a {@link ShittyCsv.Record} writes the text of its fields. */
+interface CsvSink {
+
+    /** Appends a single ASCII character. */
+    void append(char c);
+
+    /** Appends {@code s[start; end)}. */
+    void append(String s, int start, int end);
+
+    void append(long l);
+}
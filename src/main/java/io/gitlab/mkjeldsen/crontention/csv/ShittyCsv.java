@@ -7,25 +7,20 @@ public final class ShittyCsv {
 
     private final StringBuilder buffer;
 
+    private final CsvSink sink;
+
     public ShittyCsv(final int initialCapacity) {
         this.buffer = new StringBuilder(initialCapacity);
+        this.sink = new StringBuilderSink(buffer);
     }
 
     public void header(final String... names) {
-        record(
-                rec -> {
-                    for (final var name : names) {
-                        // No funky names, no need to quote.
-                        rec.field(name);
-                    }
-                });
+        record(headerRecord(names));
     }
 
     public void record(final Consumer<Record> record) {
-        record.accept(new Record(this));
-        final int last = buffer.length() - 1;
-        assert buffer.charAt(last) == ',';
-        buffer.setCharAt(last, '\n');
+        record.accept(new Record(sink));
+        buffer.append('\n');
     }
 
     @Override
@@ -33,44 +28,93 @@ public final class ShittyCsv {
         return buffer.toString();
     }
 
+    static Consumer<Record> headerRecord(final String... names) {
+        return rec -> {
+            for (final var name : names) {
+                // No funky names, no need to quote.
+                rec.field(name);
+            }
+        };
+    }
+
     public static final class Record {
 
-        private final ShittyCsv csv;
+        private final CsvSink sink;
 
         /** D3 uses " for escaping. */
         private static final char ESCAPE_CHAR = '"';
 
         private static final char QUOTE_CHAR = '"';
 
-        Record(final ShittyCsv csv) {
-            this.csv = csv;
+        private boolean empty;
+
+        Record(final CsvSink sink) {
+            this.sink = sink;
+            this.empty = true;
         }
 
         public void field(final String safeString) {
-            csv.buffer.append(safeString).append(',');
+            separate();
+            sink.append(safeString, 0, safeString.length());
         }
 
         public void field(final int i) {
-            csv.buffer.append(i).append(',');
+            separate();
+            sink.append(i);
         }
 
         public void field(final long l) {
-            csv.buffer.append(l).append(',');
+            separate();
+            sink.append(l);
         }
 
         public void quoteField(final String unsafeString) {
+            separate();
             if (!unsafeString.isEmpty()) {
-                csv.buffer.append(QUOTE_CHAR);
-                for (final char c : unsafeString.toCharArray()) {
-                    final var needsEscape = c == QUOTE_CHAR;
-                    if (needsEscape) {
-                        csv.buffer.append(ESCAPE_CHAR);
-                    }
-                    csv.buffer.append(c);
+                sink.append(QUOTE_CHAR);
+                int from = 0;
+                int quote;
+                while ((quote = unsafeString.indexOf(QUOTE_CHAR, from)) >= 0) {
+                    sink.append(unsafeString, from, quote);
+                    sink.append(ESCAPE_CHAR);
+                    sink.append(QUOTE_CHAR);
+                    from = quote + 1;
                 }
-                csv.buffer.append(QUOTE_CHAR);
+                sink.append(unsafeString, from, unsafeString.length());
+                sink.append(QUOTE_CHAR);
             }
-            csv.buffer.append(',');
+        }
+
+        private void separate() {
+            if (empty) {
+                empty = false;
+            } else {
+                sink.append(',');
+            }
+        }
+    }
+
+    private static final class StringBuilderSink implements CsvSink {
+
+        private final StringBuilder buffer;
+
+        StringBuilderSink(final StringBuilder buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void append(final char c) {
+            buffer.append(c);
+        }
+
+        @Override
+        public void append(final String s, final int start, final int end) {
+            buffer.append(s, start, end);
+        }
+
+        @Override
+        public void append(final long l) {
+            buffer.append(l);
         }
     }
 }
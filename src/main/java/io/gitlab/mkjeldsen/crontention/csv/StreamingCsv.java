@@ -0,0 +1,144 @@
+package io.gitlab.mkjeldsen.crontention.csv;
+
+import io.gitlab.mkjeldsen.crontention.csv.ShittyCsv.Record;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes the same records as {@link ShittyCsv} but encodes them as UTF-8
+ * straight into an {@link OutputStream} through a small fixed buffer, instead
+ * of building the entire document as a {@code String} first. For large
+ * documents that saves several full copies of the payload.
+ */
+public final class StreamingCsv implements Flushable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Fits the longest {@code long}, including sign. */
+    private static final int MAX_LONG_CHARS = 20;
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+
+    private final CsvSink sink;
+
+    private int size;
+
+    public StreamingCsv(final OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.sink = new Utf8Sink();
+    }
+
+    public void header(final String... names) {
+        record(ShittyCsv.headerRecord(names));
+    }
+
+    /**
+     * Writes one record.
+     *
+     * @throws UncheckedIOException if the underlying stream fails, since
+     *     {@link Record} writers cannot throw checked exceptions.
+     */
+    public void record(final Consumer<Record> record) {
+        record.accept(new Record(sink));
+        put((byte) '\n');
+    }
+
+    /** Writes everything buffered so far to the underlying stream. */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void drain() throws IOException {
+        if (size > 0) {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    private void ensureCapacity(final int bytes) {
+        if (size + bytes > buffer.length) {
+            try {
+                drain();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void put(final byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private final class Utf8Sink implements CsvSink {
+
+        private final byte[] digits = new byte[MAX_LONG_CHARS];
+
+        @Override
+        public void append(final char c) {
+            put((byte) c);
+        }
+
+        @Override
+        public void append(final String s, final int start, final int end) {
+            for (int i = start; i < end; ++i) {
+                final char c = s.charAt(i);
+                if (c < 0x80) {
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    ensureCapacity(2);
+                    buffer[size++] = (byte) (0xC0 | (c >> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c)
+                        && i + 1 < end
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, s.charAt(++i));
+                    ensureCapacity(4);
+                    buffer[size++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired; replace like String.getBytes does.
+                    put((byte) '?');
+                } else {
+                    ensureCapacity(3);
+                    buffer[size++] = (byte) (0xE0 | (c >> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        @Override
+        public void append(final long l) {
+            if (l == Long.MIN_VALUE) {
+                final var s = Long.toString(l);
+                append(s, 0, s.length());
+                return;
+            }
+            // Digits come out least significant first; fill from the back.
+            long v = Math.abs(l);
+            int i = digits.length;
+            do {
+                digits[--i] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            if (l < 0) {
+                digits[--i] = '-';
+            }
+            final int length = digits.length - i;
+            ensureCapacity(length);
+            System.arraycopy(digits, i, buffer, size, length);
+            size += length;
+        }
+    }
+}
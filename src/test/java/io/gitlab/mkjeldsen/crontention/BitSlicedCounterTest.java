@@ -0,0 +1,80 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static io.gitlab.mkjeldsen.crontention.CronSchedule.MINUTES_PER_DAY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class BitSlicedCounterTest {
+
+    /** Fixed so a failure reproduces. */
+    private static final long SEED = 0x62697473L;
+
+    private final Random rng = new Random(SEED);
+
+    @Test
+    void counts_like_one_increment_per_minute() {
+        final var counter = new BitSlicedCounter();
+        final var expected = new int[MINUTES_PER_DAY];
+        for (int i = 0; i < 500; ++i) {
+            final var mask = randomMask();
+            // Weights of up to 1 to 15 bits, so every slice sees carries.
+            final int bits = 1 + rng.nextInt(15);
+            final int weight = 1 + rng.nextInt((1 << bits) - 1);
+            counter.add(mask, weight);
+            addNaively(expected, mask, weight);
+        }
+
+        assertThat(countsOf(counter)).isEqualTo(expected);
+    }
+
+    @Test
+    void merges_other_counter() {
+        final var counter = new BitSlicedCounter();
+        final var other = new BitSlicedCounter();
+        final var expected = new int[MINUTES_PER_DAY];
+        for (int i = 0; i < 100; ++i) {
+            final var mask = randomMask();
+            final int weight = 1 + rng.nextInt(999);
+            (i % 2 == 0 ? counter : other).add(mask, weight);
+            addNaively(expected, mask, weight);
+        }
+
+        counter.add(other);
+
+        assertThat(countsOf(counter)).isEqualTo(expected);
+    }
+
+    @Test
+    void counts_nothing_when_empty() {
+        assertThat(countsOf(new BitSlicedCounter()))
+                .containsOnly(0)
+                .hasSize(MINUTES_PER_DAY);
+    }
+
+    private long[] randomMask() {
+        final var mask = new long[DayPattern.WORDS];
+        for (int m = 0; m < MINUTES_PER_DAY; ++m) {
+            if (rng.nextInt(4) == 0) {
+                mask[m / Long.SIZE] |= 1L << m;
+            }
+        }
+        return mask;
+    }
+
+    private static void addNaively(
+            final int[] counts, final long[] mask, final int weight) {
+        for (int m = 0; m < MINUTES_PER_DAY; ++m) {
+            if ((mask[m / Long.SIZE] & (1L << m)) != 0) {
+                counts[m] += weight;
+            }
+        }
+    }
+
+    private static int[] countsOf(final BitSlicedCounter counter) {
+        final var counts = new int[MINUTES_PER_DAY];
+        counter.addTo(counts);
+        return counts;
+    }
+}
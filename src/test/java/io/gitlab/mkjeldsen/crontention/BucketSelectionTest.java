@@ -0,0 +1,81 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+final class BucketSelectionTest {
+
+    @Test
+    void selects_every_non_empty_bucket_by_default() {
+        final int[] counts = {0, 3, 0, 1};
+        assertThat(BucketSelection.ALL.select(counts)).containsExactly(1, 3);
+        assertThat(BucketSelection.of(0, 0)).isSameAs(BucketSelection.ALL);
+    }
+
+    @Test
+    void selects_buckets_at_threshold() {
+        final int[] counts = {5, 3, 4, 1, 4};
+        assertThat(BucketSelection.of(0, 4).select(counts))
+                .containsExactly(0, 2, 4);
+    }
+
+    @Test
+    void selects_top_buckets_in_time_order_preferring_earlier() {
+        final int[] counts = {2, 7, 4, 7, 1, 4, 0};
+        assertThat(BucketSelection.of(3, 0).select(counts))
+                .containsExactly(1, 2, 3);
+        assertThat(BucketSelection.of(10, 0).select(counts))
+                .containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(BucketSelection.of(2, 5).select(counts))
+                .containsExactly(1, 3);
+    }
+
+    @Test
+    void selects_top_buckets_like_sorting() {
+        final var rng = ThreadLocalRandom.current();
+        final var counts =
+                rng.ints(CronSchedule.MINUTES_PER_DAY, 0, 50).toArray();
+        final int top = 20;
+
+        final var expected =
+                IntStream.range(0, counts.length)
+                        .filter(i -> counts[i] > 0)
+                        .boxed()
+                        .sorted(
+                                Comparator.<Integer>comparingInt(
+                                                i -> -counts[i])
+                                        .thenComparingInt(i -> i))
+                        .limit(top)
+                        .mapToInt(i -> i)
+                        .sorted()
+                        .toArray();
+
+        assertThat(BucketSelection.of(top, 0).select(counts))
+                .containsExactly(expected);
+    }
+
+    @Test
+    void retains_only_selected_buckets() {
+        final int[] counts = {2, 7, 4, 7, 1};
+        BucketSelection.of(2, 0).retain(counts);
+        assertThat(counts).containsExactly(0, 7, 0, 7, 0);
+    }
+
+    @Test
+    void selects_every_bucket_for_top_beyond_the_buckets() {
+        final int[] counts = {2, 0, 4};
+        assertThat(BucketSelection.of(Integer.MAX_VALUE, 0).select(counts))
+                .containsExactly(0, 2);
+    }
+
+    @Test
+    void rejects_negative_top() {
+        assertThatThrownBy(() -> BucketSelection.of(-1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
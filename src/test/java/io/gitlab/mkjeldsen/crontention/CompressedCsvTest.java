@@ -0,0 +1,48 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+final class CompressedCsvTest {
+
+    private static final String[] SOME_HEADER = {"a", "b"};
+
+    @Test
+    void decodes_to_identity() throws IOException {
+        final var someFireTime = new FireTime(Instant.EPOCH);
+        someFireTime.expressions.add("0 0 0 * * ?");
+        someFireTime.count = 1;
+
+        final var record = new ContentionCsvRecordWriter(someFireTime);
+
+        final var csv =
+                CompressedCsv.of(
+                        body -> {
+                            body.header(SOME_HEADER);
+                            body.record(record);
+                        });
+
+        final var out = new ByteArrayOutputStream();
+        csv.writeIdentityTo(out);
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("a,b\n00:00,0,0,1,\"0 0 0 * * ?\"\n");
+    }
+
+    @Test
+    void holds_valid_gzip() throws IOException {
+        final var csv = CompressedCsv.of(body -> body.header(SOME_HEADER));
+
+        final var bytes = new ByteArrayInputStream(csv.gzip());
+        try (final var in = new GZIPInputStream(bytes)) {
+            assertThat(in.readAllBytes()).asString().isEqualTo("a,b\n");
+        }
+        assertThat(csv.size()).isEqualTo(csv.gzip().length);
+    }
+}
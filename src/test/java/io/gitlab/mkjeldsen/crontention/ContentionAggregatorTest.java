@@ -6,8 +6,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.groups.Tuple.tuple;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
 import java.time.LocalDate;
-import java.util.Collection;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -56,6 +65,55 @@ final class ContentionAggregatorTest {
                 .allSatisfy(fireTime -> assertThat(fireTime).hasCount(2));
     }
 
+    @Test
+    void counts_contention_across_parallel_evaluation()
+            throws DateFieldValueException {
+        final var someDate = "2030-07-13";
+        // Distinct schedules; duplicates are evaluated only once.
+        final int manyLines = ContentionAggregator.PARALLEL_THRESHOLD * 3 + 1;
+        final var manyExpressions =
+                IntStream.range(0, manyLines)
+                        .mapToObj(i -> i % 60 + " " + i / 60 + " * * * ?")
+                        .collect(Collectors.joining("\n"));
+
+        final var fireTimes = fireTimesForDateExpr(someDate, manyExpressions);
+
+        assertThat(fireTimes)
+                .isSortedAccordingTo(Comparator.comparing(f -> f.when))
+                .extracting(f -> f.count)
+                .containsOnly(60L, (long) manyLines % 60)
+                .hasSize(24 * (manyLines / 60 + 1));
+    }
+
+    @Test
+    void counts_each_line_of_shared_schedule()
+            throws DateFieldValueException {
+        final var someDate = "2030-07-13";
+        final var someCommand = CRON_AT_LEAST_ONCE + " some-command";
+        final var otherCommand = CRON_AT_LEAST_ONCE + " other-command";
+        final var otherSpacing = CRON_AT_LEAST_ONCE.replace(" ", "\t ");
+        final var expressions =
+                String.join(
+                        "\n",
+                        someCommand,
+                        otherCommand,
+                        someCommand,
+                        otherSpacing);
+
+        final var fireTimes = fireTimesForDateExpr(someDate, expressions);
+
+        assertThat(fireTimes)
+                .hasSize(24 * 60)
+                .allSatisfy(f -> assertThat(f).hasCount(4))
+                .allSatisfy(
+                        f ->
+                                assertThat(f.expressions)
+                                        .containsExactlyInAnyOrder(
+                                                someCommand,
+                                                otherCommand,
+                                                otherSpacing));
+    }
+
     @Test
     void accepts_padded_date() throws DateFieldValueException {
         final var somePaddedDate = "  2020-04-04  ";
@@ -69,6 +127,307 @@ final class ContentionAggregatorTest {
                 .firesOn(unpaddedDate);
     }
 
+    @Test
+    void calculates_each_day_of_range() {
+        final var first = LocalDate.of(2021, 1, 1);
+        final var last = LocalDate.of(2021, 1, 31);
+        final var mondays = "0 0 12 ? * MON";
+        final var lastDay = "0 30 6 L * ?";
+
+        final var aggregator = forUtcDate(first);
+        aggregator.parseCronExpressions(mondays + '\n' + lastDay);
+        final var days = new ArrayList<LocalDate>();
+        final var fireDays = new ArrayList<LocalDate>();
+        aggregator.calculateDailyFireTimes(
+                last,
+                (day, fireTimes) -> {
+                    days.add(day);
+                    if (!fireTimes.isEmpty()) {
+                        fireDays.add(day);
+                    }
+                    final var date = day.toString();
+                    assertThat(fireTimes)
+                            .allSatisfy(f -> assertThat(f).firesOn(date));
+                });
+
+        assertThat(aggregator.errors).isEmpty();
+        assertThat(days).hasSize(31).startsWith(first).endsWith(last);
+        assertThat(fireDays)
+                .extracting(LocalDate::getDayOfMonth)
+                .containsExactly(4, 11, 18, 25, 31);
+    }
+
+    @Test
+    void range_agrees_with_each_single_day() {
+        final var first = LocalDate.of(2021, 1, 1);
+        final var last = LocalDate.of(2021, 3, 31);
+        final var expressions =
+                String.join(
+                        "\n",
+                        "0 0 12 ? * MON-FRI",
+                        "0 0 12 ? * MON-FRI cmd",
+                        "0 0/30 * ? * SAT,SUN",
+                        "0 0 12 L * ?",
+                        "0 0 6 15W * ?",
+                        "0 0 12 ? * 6L",
+                        // Quartz only.
+                        "0 0/5 12 ? * 1-3#2");
+
+        final var aggregator = forUtcDate(first);
+        aggregator.parseCronExpressions(expressions);
+        final var days = new ArrayList<LocalDate>();
+        aggregator.calculateDailyFireTimes(
+                last,
+                (day, fireTimes) -> {
+                    days.add(day);
+                    final var single = forUtcDate(day);
+                    single.parseCronExpressions(expressions);
+                    assertThat(fireTimes)
+                            .usingRecursiveFieldByFieldElementComparator()
+                            .isEqualTo(single.calculateFireTimes());
+                });
+
+        assertThat(aggregator.errors).isEmpty();
+        assertThat(days).hasSize(90);
+    }
+
+    @Test
+    void counts_fire_times_per_second() {
+        final var someDate = LocalDate.of(2021, 1, 4);
+        final var expressions =
+                String.join(
+                        "\n",
+                        "0/20 0 12 * * ?",
+                        "0/20 0 12 * * ? other",
+                        "0 0 12 * * ?",
+                        // Quartz only; 2021-01-04 is the first Monday.
+                        "0 0/30 12 ? * 1-3#1");
+
+        final var aggregator = forUtcDate(someDate);
+        aggregator.parseCronExpressions(expressions);
+        final var counts = aggregator.calculateSecondCounts();
+
+        assertThat(aggregator.errors).isEmpty();
+        final int noon = 12 * 3600;
+        final var expected = new int[CronSchedule.SECONDS_PER_DAY];
+        expected[noon] = 4;
+        expected[noon + 20] = 2;
+        expected[noon + 40] = 2;
+        expected[noon + 30 * 60] = 1;
+        assertThat(counts).isEqualTo(expected);
+    }
+
+    @Test
+    void counts_running_jobs_across_midnight() {
+        final var someDate = LocalDate.of(2021, 1, 5);
+        final var expressions =
+                String.join(
+                        "\n",
+                        "0 30 23 * * ? backup @1h",
+                        "0 15 0 * * ? @30m",
+                        // Quartz only; runs for one second.
+                        "0 15 0 ? * 1-3#1");
+
+        final var aggregator = forUtcDate(someDate);
+        aggregator.parseCronExpressions(expressions);
+        final var running = aggregator.calculateRunningCounts();
+
+        assertThat(aggregator.errors).isEmpty();
+        final var expected = new int[CronSchedule.SECONDS_PER_DAY];
+        // Yesterday's backup runs until 00:30.
+        Arrays.fill(expected, 0, 30 * 60, 1);
+        Arrays.fill(expected, 15 * 60, 45 * 60, 2);
+        expected[15 * 60] = 3;
+        Arrays.fill(expected, 30 * 60, 45 * 60, 1);
+        // Today's backup runs past midnight.
+        Arrays.fill(expected, (23 * 60 + 30) * 60, expected.length, 1);
+        assertThat(running).isEqualTo(expected);
+
+        final var peaks = aggregator.calculatePeakConcurrency();
+        assertThat(peaks).hasSize(CronSchedule.MINUTES_PER_DAY);
+        assertThat(peaks[14]).isEqualTo(1);
+        assertThat(peaks[15]).isEqualTo(3);
+        assertThat(peaks[16]).isEqualTo(2);
+        assertThat(peaks[45]).isZero();
+        assertThat(peaks[23 * 60 + 59]).isEqualTo(1);
+    }
+
+    @Test
+    void running_counts_without_durations_equal_second_counts()
+            throws DateFieldValueException {
+        final var expressions =
+                String.join("\n", CRON_MAXIMAL, "*/7 */3 * * * ?");
+
+        final var aggregator = forUtcDate("2021-01-29");
+        aggregator.parseCronExpressions(expressions);
+
+        assertThat(aggregator.calculateRunningCounts())
+                .isEqualTo(aggregator.calculateSecondCounts());
+    }
+
+    @Test
+    void rollups_agree_with_minute_fire_times() throws DateFieldValueException {
+        final var expressions =
+                String.join(
+                        "\n",
+                        "*/7 */3 * * * ?",
+                        "15,45 0/5 6-18 ? * FRI",
+                        "0 0/5 12 ? * 4-6#5");
+
+        final var aggregator = forUtcDate("2021-01-29");
+        aggregator.parseCronExpressions(expressions);
+        final var levels =
+                aggregator.calculateRollups(null, BucketSelection.ALL);
+        final var minutes = fireTimesForDateExpr("2021-01-29", expressions);
+
+        assertThat(aggregator.errors).isEmpty();
+        assertThat(levels).hasSize(ContentionAggregator.ROLLUP_MINUTES.size());
+        assertThat(levels.get(0))
+                .extracting(f -> f.when, f -> f.count)
+                .containsExactlyElementsOf(
+                        minutes.stream()
+                                .map(f -> tuple(f.when, f.count))
+                                .collect(Collectors.toList()));
+        for (int level = 1; level < levels.size(); ++level) {
+            final long window = ContentionAggregator.ROLLUP_MINUTES.get(level);
+            for (final var rollup : levels.get(level)) {
+                final var end = rollup.when.plusSeconds(window * 60);
+                final var inWindow =
+                        minutes.stream()
+                                .filter(f -> !f.when.isBefore(rollup.when))
+                                .filter(f -> f.when.isBefore(end))
+                                .collect(Collectors.toList());
+                final long count =
+                        inWindow.stream().mapToLong(f -> f.count).sum();
+                assertThat(rollup.count).isEqualTo(count);
+                assertThat(rollup.expressions)
+                        .isEqualTo(
+                                inWindow.stream()
+                                        .flatMap(f -> f.expressions.stream())
+                                        .collect(Collectors.toSet()));
+            }
+        }
+    }
+
+    @Test
+    void second_counts_sum_to_minute_counts()
+            throws DateFieldValueException {
+        final var someDate = "2021-01-29";
+        final var expressions =
+                String.join(
+                        "\n",
+                        CRON_MAXIMAL,
+                        "*/7 */3 * * * ?",
+                        "15,45 0/5 6-18 ? * FRI",
+                        "0 0/5 12 ? * 4-6#5");
+
+        final var aggregator = forUtcDate(someDate);
+        aggregator.parseCronExpressions(expressions);
+        final var counts = aggregator.calculateSecondCounts();
+        final var fireTimes = fireTimesForDateExpr(someDate, expressions);
+
+        final var minuteCounts = new long[CronSchedule.MINUTES_PER_DAY];
+        for (int second = 0; second < counts.length; ++second) {
+            minuteCounts[second / 60] += counts[second];
+        }
+        final var expected = new long[CronSchedule.MINUTES_PER_DAY];
+        for (final var fireTime : fireTimes) {
+            final long minute =
+                    fireTime.when.getEpochSecond() / 60
+                            % CronSchedule.MINUTES_PER_DAY;
+            expected[(int) minute] = fireTime.count;
+        }
+        assertThat(minuteCounts).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases_split_lines")
+    void splits_lines(final String expressions, final List<String> lines) {
+        assertThat(ContentionAggregator.splitLines(expressions))
+                .isEqualTo(lines);
+    }
+
+    private static Stream<Arguments> cases_split_lines() {
+        return Stream.of(
+                Arguments.of("", List.of()),
+                Arguments.of("a", List.of("a")),
+                Arguments.of("a\n", List.of("a")),
+                Arguments.of("a\r\nb\r\n", List.of("a", "b")),
+                Arguments.of("a\n\nb", List.of("a", "", "b")),
+                Arguments.of(" \ta b \t", List.of(" \ta b \t")),
+                Arguments.of("a\tb\r\n", List.of("a\tb")));
+    }
+
+    @Test
+    void reports_padded_lines_as_given() throws DateFieldValueException {
+        final var padded = " \t" + CRON_MAXIMAL.replace(" ", "  ") + " \t";
+
+        final var fireTimes =
+                fireTimesForDateExpr(
+                        "2020-04-04", padded + '\n' + CRON_MAXIMAL);
+
+        assertThat(fireTimes)
+                .allSatisfy(f -> assertThat(f).hasCount(2 * 60))
+                .allSatisfy(
+                        f ->
+                                assertThat(f.expressions)
+                                        .containsExactly(padded, CRON_MAXIMAL));
+    }
+
+    @Test
+    void evaluates_crlf_lines_like_lf_lines() throws DateFieldValueException {
+        final var date = "2020-04-04";
+        final var lf = CRON_MAXIMAL + '\n' + CRON_MAXIMAL;
+        final var crlf = CRON_MAXIMAL + "\r\n" + CRON_MAXIMAL + "\r\n";
+
+        assertThat(fireTimesForDateExpr(date, crlf))
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(fireTimesForDateExpr(date, lf));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "",
+                "0 0 1 * * ?",
+                "0 0 1 * * ?\n\n",
+                "0 0 1 * * ?\r\n0 0/30 1 * * ?\t a\r\n",
+                "0 0 1 * * ?\n\n0 0 2 * * ?",
+                "0 0 1 * * ?\n  \n",
+                "\n0 0 1 * * ?",
+            })
+    void reads_lines_like_it_splits_them(final String expressions)
+            throws IOException {
+        final var someDate = LocalDate.of(2021, 1, 4);
+        final var split = forUtcDate(someDate);
+        split.parseCronExpressions(expressions);
+        final var read = forUtcDate(someDate);
+        read.parseCronExpressions(
+                new BufferedReader(new StringReader(expressions)));
+
+        assertThat(read.errors)
+                .extracting(e -> e.expr, e -> e.msg)
+                .isEqualTo(
+                        split.errors.stream()
+                                .map(e -> tuple(e.expr, e.msg))
+                                .collect(Collectors.toList()));
+        assertThat(read.calculateFireTimes())
+                .usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(split.calculateFireTimes());
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = {"", "  ", "today", " TODAY "})
+    void resolves_today_to_current_utc_date(@Nullable final String date)
+            throws DateFieldValueException {
+        final var before = LocalDate.now(ZoneOffset.UTC);
+        final var resolved = ContentionAggregator.resolveUtcDate(date);
+        final var after = LocalDate.now(ZoneOffset.UTC);
+
+        assertThat(resolved).isBetween(before, after);
+    }
+
     @Test
     void rejects_date_before_1970() {
         final var earlyDate = "1969-01-01";
@@ -135,13 +494,13 @@ final class ContentionAggregatorTest {
                 Arguments.of(latest.toString()));
     }
 
-    private static Collection<FireTime> fireTimesForDateExpr(
+    private static List<FireTime> fireTimesForDateExpr(
             final String date, final String expressions)
             throws DateFieldValueException {
         final ContentionAggregator aggregator;
         aggregator = forUtcDate(date);
         aggregator.parseCronExpressions(expressions);
-        Collection<FireTime> fireTimes = aggregator.calculateFireTimes();
+        List<FireTime> fireTimes = aggregator.calculateFireTimes();
         assertThat(aggregator.errors).isEmpty();
         return fireTimes;
     }
@@ -1,12 +1,62 @@
 package io.gitlab.mkjeldsen.crontention;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import org.junit.jupiter.api.Test;
 
 final class ContentionCacheKeyTest {
 
+    private static final LocalDate SOME_DATE = LocalDate.of(2021, 1, 4);
+
+    private static final String SOME_VARIANT = "v";
+
     @Test
     void equals_contract() {
-        EqualsVerifier.forClass(ContentionCacheKey.class).verify();
+        EqualsVerifier.forClass(ContentionCacheKey.class)
+                .withNonnullFields("digest", "date")
+                .verify();
+    }
+
+    @Test
+    void identifies_same_lines_on_same_date() {
+        final var someLines = List.of("0 1 2 * * ?", "0 2 3 * * ?");
+        final var fewerLines = someLines.subList(0, 1);
+
+        assertThat(keyOf(someLines, SOME_DATE))
+                .isEqualTo(keyOf(someLines, SOME_DATE))
+                .isNotEqualTo(
+                        keyOf(someLines, SOME_DATE.plusDays(1)))
+                .isNotEqualTo(keyOf(fewerLines, SOME_DATE));
+    }
+
+    @Test
+    void ignores_line_order() {
+        final var someLines = List.of("0 1 2 * * ?", "0 2 3 * * ?", "b", "a");
+        final var reordered = List.of("a", "0 2 3 * * ?", "b", "0 1 2 * * ?");
+
+        assertThat(keyOf(someLines, SOME_DATE))
+                .isEqualTo(keyOf(reordered, SOME_DATE));
+    }
+
+    @Test
+    void respects_line_boundaries() {
+        assertThat(keyOf(List.of("a", "b"), SOME_DATE))
+                .isNotEqualTo(keyOf(List.of("ab"), SOME_DATE));
+    }
+
+    @Test
+    void distinguishes_variants() {
+        final var someLines = List.of("0 1 2 * * ?");
+
+        assertThat(ContentionCacheKey.of("a", someLines, SOME_DATE))
+                .isNotEqualTo(ContentionCacheKey.of("b", someLines, SOME_DATE));
+    }
+
+    private static ContentionCacheKey keyOf(
+            final List<String> lines, final LocalDate date) {
+        return ContentionCacheKey.of(SOME_VARIANT, lines, date);
     }
 }
@@ -1,17 +1,22 @@
 package io.gitlab.mkjeldsen.crontention;
 
 import static io.restassured.RestAssured.given;
+import static io.restassured.config.DecoderConfig.decoderConfig;
+import static io.restassured.config.RestAssuredConfig.config;
 import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.Matchers.emptyString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +25,7 @@ import org.apache.http.HttpStatus;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.wildfly.common.annotation.Nullable;
 
@@ -28,6 +34,8 @@ class ContentionControllerTest {
 
     private static final String CSV_HEADER = "key,h,m,count,expressions\n";
 
+    private static final String VARY = "Accept, Accept-Encoding";
+
     @Test
     void evaluates_single_expression() {
         final var someSimpleExpr = "0 1 2 * * ? *";
@@ -43,6 +51,7 @@ class ContentionControllerTest {
                 .statusCode(HttpStatus.SC_OK)
                 .contentType(ContentionController.MEDIA_TYPE_CSV)
                 .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .header(HttpHeaders.VARY, VARY)
                 .body(startsWith(CSV_HEADER))
                 .body(containsString(expectSimpleRecord));
     }
@@ -77,6 +86,45 @@ class ContentionControllerTest {
         counts_contended_slots();
     }
 
+    @Test
+    void evaluates_crlf_lines() {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+        final var someOtherSimpleExpr = "1 2 3 * * ? *";
+
+        final var expectOtherSimpleRecord =
+                "03:02,3,2,1,\"" + someOtherSimpleExpr + '"' + '\n';
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        someSimpleExpr + "\r\n" + someOtherSimpleExpr + "\r\n");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body(containsString(expectOtherSimpleRecord));
+    }
+
+    @Test
+    void reports_lines_as_given_whatever_their_spacing() {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+        final var someSpacedExpr = " 0  1\t2 * * ? * ";
+
+        for (final var expr : List.of(someSimpleExpr, someSpacedExpr)) {
+            final var formParams =
+                    Map.of(
+                            ContentionController.FORM_EXPRESSIONS,
+                            expr,
+                            ContentionController.FORM_DATE,
+                            "2021-01-04");
+
+            requestWith(formParams)
+                    .then()
+                    .statusCode(HttpStatus.SC_OK)
+                    .body(is(CSV_HEADER + "02:01,2,1,1,\"" + expr + "\"\n"));
+        }
+    }
+
     @Test
     void evaluates_dated_expression() {
         final var date = "2010-01-01";
@@ -166,6 +214,520 @@ class ContentionControllerTest {
                 .body(containsString(expectSimpleRecord));
     }
 
+    @Test
+    void streams_large_input() {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+        final int lines =
+                ContentionController.MAX_CACHED_EXPRESSIONS_LENGTH
+                                / someSimpleExpr.length()
+                        + 1;
+        final var expressions = (someSimpleExpr + '\n').repeat(lines);
+
+        final var expectOnlyRecord =
+                "02:01,2,1," + lines + ",\"" + someSimpleExpr + '"' + '\n';
+
+        final var formParams =
+                Map.of(ContentionController.FORM_EXPRESSIONS, expressions);
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(is(CSV_HEADER + expectOnlyRecord));
+    }
+
+    @Test
+    void serves_identity_to_client_without_gzip() {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+
+        final var expectSimpleRecord =
+                "02:01,2,1,1,\"" + someSimpleExpr + '"' + '\n';
+
+        final var formParams =
+                Map.of(ContentionController.FORM_EXPRESSIONS, someSimpleExpr);
+
+        // Sends no Accept-Encoding.
+        final var noGzip =
+                config().decoderConfig(decoderConfig().noContentDecoders());
+
+        // Twice, to be sure to hit the cache too.
+        for (int i = 0; i < 2; ++i) {
+            given().config(noGzip)
+                    .contentType(ContentType.URLENC)
+                    .formParams(formParams)
+                    .when()
+                    .post(ContentionController.ENDPOINT)
+                    .then()
+                    .statusCode(HttpStatus.SC_OK)
+                    .contentType(ContentionController.MEDIA_TYPE_CSV)
+                    .header(HttpHeaders.CONTENT_ENCODING, nullValue())
+                    .header(HttpHeaders.VARY, VARY)
+                    .body(is(CSV_HEADER + expectSimpleRecord));
+        }
+    }
+
+    @Test
+    void evaluates_dictionary_form_on_request() {
+        final var expressions =
+                String.join(
+                        "\n",
+                        "0 0 1 * * ?",
+                        "0 30 1,2 * * ? z",
+                        "0 0,30 2 * * ?");
+
+        final var formParams =
+                Map.of(ContentionController.FORM_EXPRESSIONS, expressions);
+
+        // Twice, to be sure to hit the cache too.
+        for (int i = 0; i < 2; ++i) {
+            dictionaryRequestWith(formParams)
+                    .then()
+                    .statusCode(HttpStatus.SC_OK)
+                    .contentType(
+                            ContentionController.MEDIA_TYPE_DICTIONARY_CSV)
+                    .header(HttpHeaders.VARY, VARY)
+                    .body(
+                            is(
+                                    "expression\n"
+                                            + "\"0 0 1 * * ?\"\n"
+                                            + "\"0 30 1,2 * * ? z\"\n"
+                                            + "\"0 0,30 2 * * ?\"\n"
+                                            + "\n"
+                                            + "key,h,m,count,members\n"
+                                            + "01:00,1,0,1,0\n"
+                                            + "01:30,1,30,1,1\n"
+                                            + "02:00,2,0,1,2\n"
+                                            + "02:30,2,30,2,1 1\n"));
+        }
+
+        // Does not take the plain form from the cache.
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(startsWith(CSV_HEADER));
+    }
+
+    @Test
+    void evaluates_seconds_as_plain_csv_despite_dictionary_request() {
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        "0 0 12 * * ?",
+                        ContentionController.FORM_RESOLUTION,
+                        "second");
+
+        dictionaryRequestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(startsWith("key,h,m,s,seconds,count\n"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiter = '|',
+            value = {
+                "text/vnd.crontention.dictionary+csv|true",
+                "text/csv, text/vnd.crontention.dictionary+csv;q=0.9|true",
+                "text/vnd.crontention.dictionary+csv;q=0|false",
+                "text/csv|false",
+                "*/*|false",
+                "''|false",
+            })
+    void detects_dictionary_acceptance(
+            final String accept, final boolean expected) {
+        assertThat(ContentionController.acceptsDictionary(accept))
+                .isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiter = '|',
+            value = {
+                "gzip|true",
+                "GZIP|true",
+                "gzip, deflate|true",
+                "deflate, gzip;q=0.5|true",
+                "*|true",
+                "gzip;q=0|false",
+                "gzip; q=0.000|false",
+                "*;q=0|false",
+                "*;q=0, gzip|true",
+                "gzip;q=0, *|false",
+                "deflate, br|false",
+                "identity|false",
+                "''|false",
+            })
+    void detects_gzip_acceptance(
+            final String acceptEncoding, final boolean expected) {
+        assertThat(ContentionController.acceptsGzip(acceptEncoding))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    void evaluates_seconds_as_runs() {
+        final var expressions = "0-9 0 12 * * ?\n5-14 0 12 * * ?";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        expressions,
+                        ContentionController.FORM_RESOLUTION,
+                        "second");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(
+                        is(
+                                "key,h,m,s,seconds,count\n"
+                                        + "12:00:00,12,0,0,5,1\n"
+                                        + "12:00:05,12,0,5,5,2\n"
+                                        + "12:00:10,12,0,10,5,1\n"));
+    }
+
+    @Test
+    void evaluates_peak_running_jobs_per_minute() {
+        final var expressions = "0 0 12 * * ? a @2m\n30 0 12 * * ? b @1m";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        expressions,
+                        ContentionController.FORM_COUNT,
+                        "running");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(
+                        is(
+                                "key,h,m,s,seconds,count\n"
+                                        + "12:00:00,12,0,0,120,2\n"));
+    }
+
+    @Test
+    void evaluates_running_jobs_per_second() {
+        final var expressions = "0 0 12 * * ? a @2m\n30 0 12 * * ? b @1m";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        expressions,
+                        ContentionController.FORM_COUNT,
+                        "running",
+                        ContentionController.FORM_RESOLUTION,
+                        "second");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body(
+                        is(
+                                "key,h,m,s,seconds,count\n"
+                                        + "12:00:00,12,0,0,30,1\n"
+                                        + "12:00:30,12,0,30,60,2\n"
+                                        + "12:01:30,12,1,30,30,1\n"));
+    }
+
+    @Test
+    void selects_top_minutes_at_threshold() {
+        final var a = "0/20 2 2 * * ? a";
+        final var c = "0/15 4 2 * * ? c";
+        final var expressions =
+                String.join("\n", "0 1 2 * * ?", a, "0/30 3 2 * * ? b", c);
+
+        given().contentType(ContentType.URLENC)
+                .formParams(ContentionController.FORM_EXPRESSIONS, expressions)
+                .queryParam(ContentionController.QUERY_TOP, 2)
+                .queryParam(ContentionController.QUERY_THRESHOLD, 2)
+                .when()
+                .post(ContentionController.ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body(
+                        is(
+                                CSV_HEADER
+                                        + "02:02,2,2,3,\"" + a + "\"\n"
+                                        + "02:04,2,4,4,\"" + c + "\"\n"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"minute,1440", "second,86400", "rollup,2000000000"})
+    void selects_every_bucket_for_top_beyond_the_day(
+            final String resolution, final String top) {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+
+        given().contentType(ContentType.URLENC)
+                .formParams(
+                        ContentionController.FORM_EXPRESSIONS,
+                        someSimpleExpr,
+                        ContentionController.FORM_RESOLUTION,
+                        resolution)
+                .queryParam(ContentionController.QUERY_TOP, top)
+                .when()
+                .post(ContentionController.ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .body(containsString("2,1,"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"top,-1", "top,x", "threshold,1.5"})
+    void invalid_selection_is_bad_request_with_info(
+            final String param, final String value) {
+        given().contentType(ContentType.URLENC)
+                .queryParam(param, value)
+                .when()
+                .post(ContentionController.ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body(param + ".value", is(value));
+    }
+
+    @Test
+    void evaluates_rollups() {
+        final var a = "0 1 2 * * ? a";
+        final var b = "0 7,8 2 * * ? b";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        a + '\n' + b,
+                        ContentionController.FORM_RESOLUTION,
+                        "rollup");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(startsWith("window,key,h,m,count,expressions\n"))
+                .body(containsString("1,02:01,2,1,1,\"" + a + "\"\n"))
+                .body(containsString("1,02:08,2,8,1,\"" + b + "\"\n"))
+                .body(containsString("5,02:05,2,5,2,\"" + b + "\"\n"))
+                .body(containsString("15,02:00,2,0,3,\""))
+                .body(containsString("60,02:00,2,0,3,\""));
+    }
+
+    @Test
+    void running_rollups_are_bad_request() {
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_RESOLUTION,
+                        "rollup",
+                        ContentionController.FORM_COUNT,
+                        "running");
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .body("resolution.value", is("rollup"));
+    }
+
+    @Test
+    void evaluates_deltas_against_result_token() {
+        final var a = "0 1 2 * * ? a";
+        final var b = "0 1 2 * * ? b";
+        final var c = "0 3 2 * * ? c";
+
+        final var first =
+                incrementalRequestWith(
+                        Map.of(
+                                ContentionController.FORM_EXPRESSIONS,
+                                a + '\n' + b));
+        first.then()
+                .statusCode(HttpStatus.SC_OK)
+                .body(containsString("02:01,2,1,2,"));
+        final var token =
+                first.header(ContentionController.RESULT_TOKEN_HEADER);
+        assertThat(token).isNotBlank();
+
+        final var delta =
+                Map.of(
+                        ContentionController.FORM_TOKEN,
+                        token,
+                        ContentionController.FORM_ADDED,
+                        c,
+                        ContentionController.FORM_REMOVED,
+                        b);
+        // Twice; a revision stays usable after an update.
+        for (int i = 0; i < 2; ++i) {
+            final var second = incrementalRequestWith(delta);
+            second.then()
+                    .statusCode(HttpStatus.SC_OK)
+                    .body(
+                            is(
+                                    CSV_HEADER
+                                            + "02:01,2,1,1,\"" + a + "\"\n"
+                                            + "02:03,2,3,1,\"" + c + "\"\n"));
+            assertThat(second.header(ContentionController.RESULT_TOKEN_HEADER))
+                    .isNotEqualTo(token);
+        }
+
+        final var missing =
+                Map.of(
+                        ContentionController.FORM_TOKEN,
+                        token,
+                        ContentionController.FORM_REMOVED,
+                        c);
+        incrementalRequestWith(missing)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .body("removed.msg", containsString(c));
+    }
+
+    @Test
+    void unknown_result_token_is_bad_request() {
+        final var someToken = "nope";
+
+        incrementalRequestWith(
+                        Map.of(ContentionController.FORM_TOKEN, someToken))
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("token.value", is(someToken));
+    }
+
+    @Test
+    void evaluates_plain_text_body() {
+        final var someSimpleExpr = "0 1 2 * * ? *";
+        final var expressions = someSimpleExpr + "\r\n" + someSimpleExpr;
+
+        given().contentType(ContentType.TEXT)
+                .body(expressions)
+                .queryParam(ContentionController.FORM_DATE, "2021-01-04")
+                .when()
+                .post(ContentionController.ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .header(HttpHeaders.VARY, VARY)
+                .body(
+                        is(
+                                CSV_HEADER
+                                        + "02:01,2,1,2,\""
+                                        + someSimpleExpr
+                                        + "\"\n"));
+    }
+
+    @Test
+    void invalid_plain_text_line_is_bad_request() {
+        given().contentType(ContentType.TEXT)
+                .body("0 1 2 * * ?\nfoo")
+                .when()
+                .post(ContentionController.ENDPOINT)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("expressions[0].expr", is("foo"));
+    }
+
+    @Test
+    void invalid_count_is_bad_request_with_info() {
+        final var someBadCount = "stops";
+
+        final var formParams =
+                singletonMap(ContentionController.FORM_COUNT, someBadCount);
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("count.value", is(someBadCount))
+                .body("count.msg", containsString("running"));
+    }
+
+    @Test
+    void invalid_resolution_is_bad_request_with_info() {
+        final var someBadResolution = "hour";
+
+        final var formParams =
+                singletonMap(
+                        ContentionController.FORM_RESOLUTION,
+                        someBadResolution);
+
+        requestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("resolution.value", is(someBadResolution))
+                .body("resolution.msg", containsString("second"));
+    }
+
+    @Test
+    void evaluates_range_per_day() {
+        final var mondays = "0 0 12 ? * MON";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_EXPRESSIONS,
+                        mondays,
+                        ContentionController.FORM_START,
+                        "2021-01-01",
+                        ContentionController.FORM_END,
+                        "2021-01-14");
+
+        rangeRequestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_OK)
+                .contentType(ContentionController.MEDIA_TYPE_CSV)
+                .body(
+                        is(
+                                "date,"
+                                        + CSV_HEADER
+                                        + "2021-01-04,12:00,12,0,1,\""
+                                        + mondays
+                                        + "\"\n"
+                                        + "2021-01-11,12:00,12,0,1,\""
+                                        + mondays
+                                        + "\"\n"));
+    }
+
+    @Test
+    void range_end_before_start_is_bad_request_with_info() {
+        final var someEnd = "2021-01-01";
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_START,
+                        "2021-01-02",
+                        ContentionController.FORM_END,
+                        someEnd);
+
+        rangeRequestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("end.value", is(someEnd))
+                .body("end.msg", startsWith("Must not be before start"));
+    }
+
+    @Test
+    void range_too_long_is_bad_request_with_info() {
+        final var someStart = LocalDate.of(2021, 1, 1);
+        final var someEnd =
+                someStart.plusDays(ContentionController.MAX_RANGE_DAYS);
+
+        final var formParams =
+                Map.of(
+                        ContentionController.FORM_START,
+                        someStart.toString(),
+                        ContentionController.FORM_END,
+                        someEnd.toString());
+
+        rangeRequestWith(formParams)
+                .then()
+                .statusCode(HttpStatus.SC_BAD_REQUEST)
+                .contentType(ContentType.JSON)
+                .body("end.value", is(someEnd.toString()))
+                .body("end.msg", startsWith("Must be less than"));
+    }
+
     @Test
     void invalid_expression_is_bad_request_with_info() {
         final var bad1 = "invalid";
@@ -223,6 +785,37 @@ class ContentionControllerTest {
                         startsWith("Must not be later than 100 years"));
     }
 
+    private static Response rangeRequestWith(
+            final Map<String, String> formParams) {
+        return given().contentType(ContentType.URLENC)
+                .formParams(formParams)
+                .when()
+                .post(
+                        ContentionController.ENDPOINT
+                                + '/'
+                                + ContentionController.RANGE_PATH);
+    }
+
+    private static Response incrementalRequestWith(
+            final Map<String, String> formParams) {
+        return given().contentType(ContentType.URLENC)
+                .formParams(formParams)
+                .when()
+                .post(
+                        ContentionController.ENDPOINT
+                                + '/'
+                                + ContentionController.INCREMENTAL_PATH);
+    }
+
+    private static Response dictionaryRequestWith(
+            final Map<String, String> formParams) {
+        return given().contentType(ContentType.URLENC)
+                .accept(ContentionController.MEDIA_TYPE_DICTIONARY_CSV)
+                .formParams(formParams)
+                .when()
+                .post(ContentionController.ENDPOINT);
+    }
+
     private static Response requestWith(final Map<String, String> formParams) {
         return given().contentType(ContentType.URLENC)
                 .formParams(formParams)
@@ -0,0 +1,316 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Sends a mix of cache-hit and cache-miss requests to {@code /evaluate} from
+ * many concurrent clients and reports throughput and latency percentiles. Not
+ * a test of correctness, so it only runs when asked for, with
+ *
+ * <pre>
+ * ./mvnw test -Dtest=ContentionLoadTest -Dloadtest=true
+ * </pre>
+ *
+ * Tune it with {@code loadtest.clients}, {@code loadtest.seconds}, {@code
+ * loadtest.warmup-seconds}, {@code loadtest.hit-ratio} and {@code
+ * loadtest.lines}. Every client waits for its response before sending the
+ * next request, so latencies under saturation are understated and throughput
+ * is the number to size by.
+ */
+@QuarkusTest
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class ContentionLoadTest {
+
+    private static final String DATE = "2021-03-19";
+
+    /** How many distinct configurations cache hits cycle through. */
+    private static final int HIT_CONFIGURATIONS = 16;
+
+    @TestHTTPResource(ContentionController.ENDPOINT)
+    URI endpoint;
+
+    @Test
+    void reports_throughput_and_latency() throws Exception {
+        final int clients = Integer.getInteger("loadtest.clients", 32);
+        final int seconds = Integer.getInteger("loadtest.seconds", 30);
+        final int warmupSeconds =
+                Integer.getInteger("loadtest.warmup-seconds", 10);
+        final double hitRatio =
+                Double.parseDouble(
+                        System.getProperty("loadtest.hit-ratio", "0.9"));
+        final int lines = Integer.getInteger("loadtest.lines", 200);
+
+        final var hitBodies = new ArrayList<String>(HIT_CONFIGURATIONS);
+        for (int i = 0; i < HIT_CONFIGURATIONS; ++i) {
+            hitBodies.add(formBody(crontab(i, lines)));
+        }
+        final var missBase = crontab(HIT_CONFIGURATIONS, lines);
+        final var misses = new AtomicLong();
+        final var load = new Load(endpoint, hitBodies, missBase, misses);
+
+        final var pool = Executors.newFixedThreadPool(clients);
+        try {
+            run(pool, clients, load, hitRatio, warmupSeconds);
+            final long start = System.nanoTime();
+            final var results = run(pool, clients, load, hitRatio, seconds);
+            // The last requests finish after the deadline.
+            final double elapsed = (System.nanoTime() - start) / 1e9;
+
+            final var hits = new LatencyLog();
+            final var missed = new LatencyLog();
+            long errors = 0;
+            for (final var result : results) {
+                hits.addAll(result.hits);
+                missed.addAll(result.misses);
+                errors += result.errors;
+            }
+            final var all = new LatencyLog();
+            all.addAll(hits);
+            all.addAll(missed);
+
+            System.out.printf(
+                    Locale.ROOT,
+                    "%d clients, %ds, hit ratio %.2f, %d lines%n",
+                    clients,
+                    seconds,
+                    hitRatio,
+                    lines);
+            System.out.printf(
+                    Locale.ROOT,
+                    "%-5s %9s %9s %9s %9s %9s%n",
+                    "",
+                    "requests",
+                    "req/s",
+                    "p50 ms",
+                    "p99 ms",
+                    "p999 ms");
+            report("hit", hits, elapsed);
+            report("miss", missed, elapsed);
+            report("all", all, elapsed);
+
+            assertThat(errors).as("failed requests").isZero();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<ClientResult> run(
+            final ExecutorService pool,
+            final int clients,
+            final Load load,
+            final double hitRatio,
+            final int seconds)
+            throws Exception {
+        final long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        final var futures = new ArrayList<Future<ClientResult>>(clients);
+        for (int i = 0; i < clients; ++i) {
+            futures.add(pool.submit(() -> load.client(hitRatio, deadline)));
+        }
+        final var results = new ArrayList<ClientResult>(clients);
+        for (final var future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static void report(
+            final String name, final LatencyLog log, final double seconds) {
+        final var nanos = log.sorted();
+        System.out.printf(
+                Locale.ROOT,
+                "%-5s %9d %9.1f %9.2f %9.2f %9.2f%n",
+                name,
+                nanos.length,
+                nanos.length / seconds,
+                percentile(nanos, 0.5),
+                percentile(nanos, 0.99),
+                percentile(nanos, 0.999));
+    }
+
+    /** The {@code p} percentile of ascending {@code nanos}, in millis. */
+    private static double percentile(final long[] nanos, final double p) {
+        if (nanos.length == 0) {
+            return Double.NaN;
+        }
+        final int rank = (int) Math.ceil(p * nanos.length);
+        return nanos[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    /**
+     * A crontab of mostly daily and hourly jobs and a few frequent ones, the
+     * same for the same {@code seed}.
+     */
+    private static String crontab(final int seed, final int lines) {
+        final var random = new Random(seed);
+        final var crontab = new StringBuilder();
+        for (int i = 0; i < lines; ++i) {
+            final int minute = random.nextInt(60);
+            final int hour = random.nextInt(24);
+            switch (random.nextInt(4)) {
+                case 0:
+                    crontab.append("0 ").append(minute).append(" * * * ?");
+                    break;
+                case 1:
+                    crontab.append("0 0/").append(1 + random.nextInt(15));
+                    crontab.append(" * * * ?");
+                    break;
+                default:
+                    crontab.append("0 ").append(minute).append(' ');
+                    crontab.append(hour).append(" * * ?");
+                    break;
+            }
+            crontab.append(" job-").append(seed).append('-').append(i);
+            crontab.append('\n');
+        }
+        return crontab.toString();
+    }
+
+    private static String formBody(final String expressions) {
+        return ContentionController.FORM_EXPRESSIONS
+                + '='
+                + URLEncoder.encode(expressions, StandardCharsets.UTF_8)
+                + '&'
+                + ContentionController.FORM_DATE
+                + '='
+                + DATE;
+    }
+
+    /** What every client sends. */
+    private static final class Load {
+
+        private final URI endpoint;
+
+        private final List<String> hitBodies;
+
+        private final String missBase;
+
+        private final AtomicLong misses;
+
+        Load(
+                final URI endpoint,
+                final List<String> hitBodies,
+                final String missBase,
+                final AtomicLong misses) {
+            this.endpoint = endpoint;
+            this.hitBodies = hitBodies;
+            this.missBase = missBase;
+            this.misses = misses;
+        }
+
+        /**
+         * Sends requests one at a time until {@code deadline}, like a user
+         * with their own connection would.
+         */
+        ClientResult client(final double hitRatio, final long deadline)
+                throws InterruptedException {
+            final var http =
+                    HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .connectTimeout(Duration.ofSeconds(10))
+                            .build();
+            final var random = ThreadLocalRandom.current();
+            final var result = new ClientResult();
+            while (System.nanoTime() < deadline) {
+                final boolean hit = random.nextDouble() < hitRatio;
+                final String body;
+                if (hit) {
+                    body = hitBodies.get(random.nextInt(hitBodies.size()));
+                } else {
+                    // A job no other request has makes a new configuration.
+                    body =
+                            formBody(
+                                    missBase
+                                            + "0 0 0 * * ? miss-"
+                                            + misses.incrementAndGet());
+                }
+                final var request =
+                        HttpRequest.newBuilder(endpoint)
+                                .header(
+                                        HttpHeaders.CONTENT_TYPE,
+                                        "application/x-www-form-urlencoded")
+                                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                final long start = System.nanoTime();
+                try {
+                    final var response =
+                            http.send(
+                                    request,
+                                    HttpResponse.BodyHandlers.discarding());
+                    final long nanos = System.nanoTime() - start;
+                    if (response.statusCode() != HttpStatus.SC_OK) {
+                        ++result.errors;
+                    } else if (hit) {
+                        result.hits.add(nanos);
+                    } else {
+                        result.misses.add(nanos);
+                    }
+                } catch (final IOException e) {
+                    ++result.errors;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class ClientResult {
+
+        final LatencyLog hits = new LatencyLog();
+
+        final LatencyLog misses = new LatencyLog();
+
+        long errors;
+    }
+
+    /** A growable list of latencies in nanoseconds. */
+    private static final class LatencyLog {
+
+        private long[] nanos = new long[1024];
+
+        private int size;
+
+        void add(final long latency) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+        }
+
+        void addAll(final LatencyLog other) {
+            for (int i = 0; i < other.size; ++i) {
+                add(other.nanos[i]);
+            }
+        }
+
+        long[] sorted() {
+            final var sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class CronScheduleTest {
+
+    /** Month ends, leap days, and every day of the week. */
+    private static final LocalDate[] DATES = {
+        LocalDate.of(2020, 2, 28),
+        LocalDate.of(2020, 2, 29),
+        LocalDate.of(2020, 12, 25),
+        LocalDate.of(2021, 2, 28),
+        LocalDate.of(2021, 4, 30),
+        LocalDate.of(2021, 1, 1),
+        LocalDate.of(2021, 1, 2),
+        LocalDate.of(2021, 1, 3),
+        LocalDate.of(2021, 1, 4),
+        LocalDate.of(2021, 1, 5),
+        LocalDate.of(2021, 1, 6),
+        LocalDate.of(2021, 1, 7),
+        LocalDate.of(2021, 1, 15),
+        LocalDate.of(2021, 1, 25),
+        LocalDate.of(2021, 1, 29),
+        LocalDate.of(2021, 1, 31),
+        LocalDate.of(2021, 5, 31),
+        LocalDate.of(2021, 7, 30),
+        LocalDate.of(2021, 8, 2),
+        LocalDate.of(2021, 10, 1),
+        LocalDate.of(2021, 10, 29),
+        LocalDate.of(2022, 4, 30),
+        LocalDate.of(2022, 7, 1),
+        LocalDate.of(2022, 9, 30),
+        LocalDate.of(2023, 12, 31),
+    };
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("cases_supported")
+    void agrees_with_quartz(final String expression) throws ParseException {
+        final var input = ExpressionInput.parse(expression);
+        assertThat(input.schedule).as("compiles").isNotNull();
+
+        for (final var date : DATES) {
+            assertThat(fireTimesOf(input.schedule, date))
+                    .as("fire-times on %s", date)
+                    .isEqualTo(quartzFireTimesOf(input, date));
+        }
+    }
+
+    @ParameterizedTest(name = "{index}: {0}")
+    @MethodSource("cases_supported")
+    void progression_agrees_with_minutes_of_day(final String expression)
+            throws ParseException {
+        final var schedule = ExpressionInput.parse(expression).schedule;
+        assertThat(schedule).isNotNull();
+        final var progression = schedule.progression();
+        if (progression == null) {
+            return;
+        }
+
+        final var expected = new ArrayList<Integer>();
+        schedule.forEachMinuteOfDay(expected::add);
+        final var actual = new ArrayList<Integer>();
+        for (int i = 0; i < progression.count; ++i) {
+            actual.add(progression.first + i * progression.step);
+        }
+        assertThat(actual).isEqualTo(expected);
+        assertThat(progression.firesPerMinute)
+                .isEqualTo(schedule.firesPerMinute());
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "0 0/5 * * * ?",
+                "0 15 */2 * * ?",
+                "*/30 * * * * ?",
+                "0 0 12 * * ?",
+                "0 0,30 9-17 ? * MON-FRI",
+                "0 0 12 L * ?",
+                "0 0 12 ? * 6#3"
+            })
+    void classifies_progression(final String expression)
+            throws ParseException {
+        final var schedule = ExpressionInput.parse(expression).schedule;
+        assertThat(schedule).isNotNull();
+        assertThat(schedule.progression()).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "0 0,7,30 * * * ?",
+                "0 0,30 9,11 * * ?",
+                "0 0 9,10,12 * * ?",
+                "0 0/25 * * * ?"
+            })
+    void rejects_irregular_progression(final String expression)
+            throws ParseException {
+        final var schedule = ExpressionInput.parse(expression).schedule;
+        assertThat(schedule).isNotNull();
+        assertThat(schedule.progression()).isNull();
+    }
+
+    @Test
+    void counts_fire_times_per_minute() throws ParseException {
+        final var schedule = ExpressionInput.parse("0/20 * * * * ?").schedule;
+        assertThat(schedule).isNotNull();
+        assertThat(schedule.firesPerMinute()).isEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "0 15 10 ? * mon-fri",
+                "  0 15 10 ? * MON-FRI",
+                "0\t15  10 ?\t \t* MON-FRI  "
+            })
+    void normalizes_equivalent_expressions(final String expression) {
+        assertThat(CronSchedule.normalize(expression))
+                .isEqualTo("0 15 10 ? * MON-FRI");
+    }
+
+    private static Stream<String> cases_supported() {
+        return Stream.of(
+                "* * * * * ?",
+                "0 * * * * ? *",
+                "0 0/5 14,18 * * ?",
+                "0 15 10 ? * 6L 2010-2011,2012/3",
+                "0 15 10 ? * 6L",
+                "0 15 10 ? * FRIL",
+                "0 15 10 ? * 6#3",
+                "0 15 10 ? * MON#1",
+                "0 15 10 ? * MON-FRI",
+                "0 15 10 ? * SAT,SUN",
+                "0 15 10 ? * FRI-MON",
+                "0 15 10 ? * L",
+                "0 15 10 ? * */2",
+                "0 15 10 L * ?",
+                "0 15 10 L-2 * ?",
+                "0 15 10 LW * ?",
+                "0 15 10 L-3W * ?",
+                "0 15 10 1W * ?",
+                "0 15 10 15W * ?",
+                "0 15 10 31W * ?",
+                "0 15 10 30W * ?",
+                "0 15 10 31W 9,8 ?",
+                "0 15 10 28-3 * ?",
+                "0 15 10 1,15,31 * ?",
+                "0 15 10 */7 * ?",
+                "0 15 10 5/10 * ?",
+                "0 15 10 * JAN-MAR,OCT ?",
+                "0 15 10 * NOV-FEB ?",
+                "0 15 10 * 2/3 ?",
+                "0 15 10 * JAN-JUN/2 ?",
+                "0 15 10 * JUL/3 ?",
+                "0 15 10 * NOV-FEB/5 ?",
+                "0 0 22-2 * * ?",
+                "50-10 58-2 * * * ?",
+                "*/30 * * * * ?",
+                "0 15 */2 * * ?",
+                "0 2,4 1 * * ? 2020/2,20211",
+                "0 2 17 ? * 6L 22222222",
+                "0 1 9 ? * 6L 2010/3",
+                "0 0 12 * * ? 2021",
+                "0 0 12 * * ? 2020-2021",
+                "0 0 12 * * ? */2",
+                "0 0 12 ? * mon-fri",
+                "0 0 12 ? * MON-FRI/2",
+                "0 0 12 ? * MON/2",
+                "0 0 12 ? * FRI-MON/3",
+                "0 0 12 ? * 2-6");
+    }
+
+    private static Map<Instant, Integer> fireTimesOf(
+            final CronSchedule schedule, final LocalDate date) {
+        final var fireTimes = new TreeMap<Instant, Integer>();
+        if (schedule.firesOn(date)) {
+            final var start = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+            schedule.forEachMinuteOfDay(
+                    minute ->
+                            fireTimes.put(
+                                    start.plusSeconds(minute * 60L),
+                                    schedule.firesPerMinute()));
+        }
+        return fireTimes;
+    }
+
+    private static Map<Instant, Integer> quartzFireTimesOf(
+            final ExpressionInput input, final LocalDate date) {
+        final var fireTimes = new TreeMap<Instant, Integer>();
+        final var start = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+        final var end = start.plus(1, ChronoUnit.DAYS);
+        final var cron = input.cron();
+        var next = start.minusSeconds(1);
+        while (next.isBefore(end)) {
+            final var after = cron.getNextValidTimeAfter(Date.from(next));
+            if (after == null) {
+                break;
+            }
+            next = after.toInstant();
+            if (next.isBefore(end)) {
+                fireTimes.merge(
+                        next.truncatedTo(ChronoUnit.MINUTES), 1, Integer::sum);
+            }
+        }
+        return fireTimes;
+    }
+}
@@ -0,0 +1,41 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.jupiter.api.Test;
+
+final class DayPatternCacheTest {
+
+    private static final LocalDate SOME_DATE = LocalDate.of(2021, 1, 4);
+
+    @Test
+    void key_equals_contract() {
+        EqualsVerifier.forClass(DayPatternCache.Key.class)
+                .withNonnullFields("expression", "date")
+                .verify();
+    }
+
+    @Test
+    void shares_pattern_of_equivalent_expressions() throws ParseException {
+        final var cache = new DayPatternCache(10);
+        final var input = ExpressionInput.parse("0 15 10 ? * MON-FRI");
+        final var equivalent = ExpressionInput.parse("0  15 10 ? * mon-fri");
+
+        final var pattern = cache.get(input, input.schedule, SOME_DATE);
+
+        assertThat(cache.get(equivalent, equivalent.schedule, SOME_DATE))
+                .isSameAs(pattern);
+    }
+
+    @Test
+    void has_no_pattern_on_dates_without_fire_times() throws ParseException {
+        final var weekdays = ExpressionInput.parse("0 15 10 ? * MON-FRI");
+        final var someSunday = LocalDate.of(2021, 1, 3);
+
+        assertThat(DayPattern.of(weekdays.schedule, someSunday).isEmpty())
+                .isTrue();
+    }
+}
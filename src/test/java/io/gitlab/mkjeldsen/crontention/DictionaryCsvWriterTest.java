@@ -0,0 +1,78 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gitlab.mkjeldsen.crontention.csv.StreamingCsv;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class DictionaryCsvWriterTest {
+
+    @Test
+    void writes_each_expression_once_and_members_as_deltas()
+            throws IOException {
+        final var someInstant = Instant.parse("2020-03-19T19:01:00Z");
+        final var first = new FireTime(someInstant);
+        first.count = 3;
+        for (int i = 0; i < 12; ++i) {
+            first.expressions.add("e" + i);
+        }
+        final var second = new FireTime(someInstant.plusSeconds(60));
+        second.count = 2;
+        second.expressions.add("e11");
+        second.expressions.add("\"quoted\"");
+
+        final var out = new ByteArrayOutputStream();
+        final var csv = new StreamingCsv(out);
+        new DictionaryCsvWriter(List.of(first, second)).accept(csv);
+        csv.flush();
+
+        final var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(1 + 13 + 1 + 3);
+        assertThat(lines[0]).isEqualTo("expression");
+        assertThat(lines).contains("\"e11\"");
+        assertThat(lines[13]).isEqualTo("\"\"\"quoted\"\"\"");
+        assertThat(lines[14]).isEmpty();
+        assertThat(lines[15]).isEqualTo("key,h,m,count,members");
+        assertThat(lines[16]).isEqualTo("19:01,19,1,3,0" + " 1".repeat(11));
+
+        final int e11 = List.of(lines).indexOf("\"e11\"") - 1;
+        assertThat(lines[17])
+                .isEqualTo("19:02,19,2,2," + e11 + ' ' + (12 - e11));
+    }
+
+    @Test
+    void writes_listed_dictionary_entries_in_dictionary_order()
+            throws IOException {
+        final var someInstant = Instant.parse("2020-03-19T19:01:00Z");
+        final var dictionary = List.of("a", "unlisted", "b", "c");
+        final var first =
+                new FireTime(someInstant, 2, dictionary, new int[] {2, 3});
+        final var second =
+                new FireTime(
+                        someInstant.plusSeconds(60),
+                        3,
+                        dictionary,
+                        new int[] {0, 2, 3});
+
+        final var out = new ByteArrayOutputStream();
+        final var csv = new StreamingCsv(out);
+        new DictionaryCsvWriter(List.of(first, second)).accept(csv);
+        csv.flush();
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n"))
+                .containsExactly(
+                        "expression",
+                        "\"a\"",
+                        "\"b\"",
+                        "\"c\"",
+                        "",
+                        "key,h,m,count,members",
+                        "19:01,19,1,2,1 1",
+                        "19:02,19,2,3,0 1 1");
+    }
+}
@@ -1,6 +1,7 @@
 package io.gitlab.mkjeldsen.crontention;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.text.ParseException;
 import java.time.ZoneOffset;
@@ -10,7 +11,9 @@ import nl.jqno.equalsverifier.EqualsVerifier;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.wildfly.common.annotation.Nullable;
 
 final class ExpressionInputTest {
@@ -41,13 +44,89 @@ final class ExpressionInputTest {
         assertThat(actual.command)
                 .as("extracts and assigns command")
                 .isEqualTo(command);
-        assertThat(actual.cron).as("assigns CronExpression").isNotNull();
-        assertThat(actual.cron.getCronExpression())
+        final var cron = actual.cron();
+        assertThat(cron).as("constructs CronExpression").isNotNull();
+        assertThat(cron.getCronExpression())
                 .as("instantiates CronExpression from expression")
                 .isEqualTo(actual.expression);
-        assertThat(actual.cron.getTimeZone())
-                .as("has UTC time zone")
-                .isEqualTo(UTC);
+        assertThat(cron.getTimeZone()).as("has UTC time zone").isEqualTo(UTC);
+        assertThat(actual.cron())
+                .as("constructs new mutable CronExpression")
+                .isNotSameAs(cron);
+    }
+
+    @Test
+    void shares_compiled_schedule() throws ParseException {
+        final var someExpression = "0 0/5 14,18 * * ?";
+        final var first = ExpressionInput.parse(someExpression + " alice");
+        final var second = ExpressionInput.parse(someExpression + " bob");
+        assertThat(first.schedule).isNotNull().isSameAs(second.schedule);
+    }
+
+    @Test
+    void parses_short_input_after_long_input() throws ParseException {
+        final var longInput = "0 15 10 ? * 6L 2010 a b c d e f g h";
+        final var shortInput = "0 15 10 ? * 6L";
+
+        assertThat(ExpressionInput.parse(longInput).command)
+                .isEqualTo("a b c d e f g h");
+        final var actual = ExpressionInput.parse(shortInput);
+        assertThat(actual.expression).isEqualTo(shortInput);
+        assertThat(actual.command).isNull();
+    }
+
+    @Test
+    void rejects_invalid_expression_repeatedly() {
+        final var someInvalid = "* * * * * * *";
+        for (int i = 0; i < 2; ++i) {
+            assertThatThrownBy(() -> ExpressionInput.parse(someInvalid))
+                    .isInstanceOf(ParseException.class)
+                    .hasMessageContaining("day-of-week AND a day-of-month");
+        }
+    }
+
+    @ParameterizedTest(name = "{index}: {0} => command={1}, duration={2}")
+    @CsvSource({
+        "'0 0 12 * * ? backup @5m', backup, 300",
+        "'0 0 12 * * ? @90s', , 90",
+        "'0 0 12 * * ? 2021 backup @2h', backup, 7200",
+        "'0 0 12 * * ? backup\t@24h', backup, 86400",
+        "'0 0 12 * * ? backup', backup, 0",
+        "'0 0 12 * * ? mail@5m', mail@5m, 0",
+        "'0 0 12 * * ? backup @5x', backup @5x, 0",
+        "'0 0 12 * * ? backup @m', backup @m, 0",
+        "' 0 0 12 * * ? backup @5m 	', backup, 300",
+        "'0 0 12 * * ? 2021 backup  ', backup, 0",
+    })
+    void parses_duration(
+            final String input,
+            @Nullable final String command,
+            final int durationSeconds)
+            throws ParseException {
+        final var actual = ExpressionInput.parse(input);
+        assertThat(actual.command).isEqualTo(command);
+        assertThat(actual.durationSeconds).isEqualTo(durationSeconds);
+        assertThat(actual.input).isEqualTo(input);
+    }
+
+    @Test
+    void reads_padded_year_as_year() throws ParseException {
+        final var input = "0 0 12 * * ? 2021 \t";
+        final var actual = ExpressionInput.parse(input);
+        assertThat(actual.command).isNull();
+        assertThat(actual.expression).isEqualTo(input);
+        assertThat(actual.input).isEqualTo(input);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"@0s", "@0h", "@25h", "@86401s", "@99999999m"})
+    void rejects_out_of_range_duration(final String duration) {
+        final var input = "0 0 12 * * ? backup " + duration;
+        assertThatThrownBy(() -> ExpressionInput.parse(input))
+                .isInstanceOf(ParseException.class)
+                .hasMessageContaining(duration)
+                .extracting(e -> ((ParseException) e).getErrorOffset())
+                .isEqualTo(input.indexOf('@'));
     }
 
     private static Stream<Arguments> cases_valid_syntax() {
@@ -0,0 +1,175 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+final class IncrementalEvaluationTest {
+
+    private static final LocalDate SOME_DATE = LocalDate.of(2021, 1, 4);
+
+    private final List<ExpressionErrorDetail> errors = new ArrayList<>();
+
+    @Test
+    void agrees_with_full_evaluation_after_deltas() {
+        final var original =
+                List.of(
+                        "0 0/5 * * * ?",
+                        "0 0/5 * * * ? twice",
+                        "0 0/5 * * * ? twice",
+                        "*/7 */3 * * * ?",
+                        // Quartz only; 2021-01-04 is the first Monday.
+                        "0 0/30 12 ? * 1-3#1");
+        final var added = List.of("15,45 0/5 6-18 ? * MON", "0 0/5 * * * ?");
+        final var removed = List.of("0 0/5 * * * ? twice", "*/7 */3 * * * ?");
+
+        final var first =
+                IncrementalEvaluation.of(SOME_DATE, original, null, errors);
+        final var second = first.update(added, removed, null, errors);
+
+        assertThat(errors).isEmpty();
+        assertFireTimes(first, original);
+        final var revised = new ArrayList<>(original);
+        revised.addAll(added);
+        removed.forEach(revised::remove);
+        assertFireTimes(second, revised);
+    }
+
+    @Test
+    void reports_missing_removals_by_multiplicity() {
+        final var first =
+                IncrementalEvaluation.of(
+                        SOME_DATE, List.of("0 0 1 * * ?"), null, errors);
+
+        assertThat(first.missing(List.of("0 0 1 * * ?"))).isEmpty();
+        assertThat(first.missing(List.of("0 0 1 * * ?", "0 0 1 * * ?")))
+                .containsExactly("0 0 1 * * ?");
+        assertThat(first.missing(List.of("0 0 2 * * ?")))
+                .containsExactly("0 0 2 * * ?");
+        assertThatThrownBy(
+                        () ->
+                                first.update(
+                                        List.of(),
+                                        List.of("0 0 2 * * ?"),
+                                        null,
+                                        errors))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void leaves_out_invalid_added_lines() {
+        final var first =
+                IncrementalEvaluation.of(
+                        SOME_DATE, List.of("0 0 1 * * ?"), null, errors);
+        final var second =
+                first.update(List.of("* * * * * * *"), List.of(), null, errors);
+
+        assertThat(errors)
+                .extracting(e -> e.expr)
+                .containsExactly("* * * * * * *");
+        assertFireTimes(second, List.of("0 0 1 * * ?"));
+    }
+
+    @Test
+    void lists_members_in_order_of_first_appearance() {
+        final var lines = new ArrayList<String>();
+        for (int i = 20; i > 0; --i) {
+            lines.add("0 0 1 * * ? job-" + i);
+        }
+
+        final var revision =
+                IncrementalEvaluation.of(SOME_DATE, List.of(), null, errors)
+                        .update(lines, List.of(), null, errors);
+
+        assertThat(revision.toFireTimes(BucketSelection.ALL))
+                .singleElement()
+                .satisfies(
+                        f ->
+                                assertThat(f.expressions)
+                                        .containsExactlyElementsOf(lines));
+    }
+
+    @Test
+    void branches_from_any_revision() {
+        final var first =
+                IncrementalEvaluation.of(
+                        SOME_DATE, List.of("0 0 1 * * ?"), null, errors);
+        final var left =
+                first.update(
+                        List.of("0 0 2 * * ? left"), List.of(), null, errors);
+        final var right =
+                first.update(
+                        List.of("0 0 2 * * ? right"),
+                        List.of("0 0 1 * * ?"),
+                        null,
+                        errors);
+
+        assertFireTimes(first, List.of("0 0 1 * * ?"));
+        assertFireTimes(left, List.of("0 0 1 * * ?", "0 0 2 * * ? left"));
+        assertFireTimes(right, List.of("0 0 2 * * ? right"));
+    }
+
+    @Test
+    void tells_apart_lines_with_equal_hash_codes() {
+        // "Aa" and "BB" hash alike, and so do lines ending in them.
+        final var aa = "0 0 1 * * ? Aa";
+        final var bb = "0 0 1 * * ? BB";
+        assertThat(aa.hashCode()).isEqualTo(bb.hashCode());
+        final var first =
+                IncrementalEvaluation.of(
+                        SOME_DATE, List.of(aa, bb), null, errors);
+        final var second = first.update(List.of(), List.of(aa), null, errors);
+
+        assertFireTimes(first, List.of(aa, bb));
+        assertFireTimes(second, List.of(bb));
+        assertThat(second.missing(List.of(aa, bb))).containsExactly(aa);
+    }
+
+    @Test
+    void keeps_order_when_renumbering_after_many_edits() {
+        final var kept = List.of("0 0 1 * * ? b", "0 0 1 * * ? a");
+        var revision = IncrementalEvaluation.of(SOME_DATE, kept, null, errors);
+        var previous = List.<String>of();
+        for (int i = 0; i < 3000; ++i) {
+            final var next = List.of("0 0 1 * * ? churn-" + i);
+            revision = revision.update(next, previous, null, errors);
+            previous = next;
+        }
+
+        assertThat(errors).isEmpty();
+        final var expected = new ArrayList<>(kept);
+        expected.addAll(previous);
+        assertFireTimes(revision, expected);
+    }
+
+    private static void assertFireTimes(
+            final IncrementalEvaluation revision, final List<String> lines) {
+        final var aggregator = ContentionAggregator.forUtcDate(SOME_DATE);
+        aggregator.parseCronExpressions(lines);
+        final var expected = aggregator.calculateFireTimes();
+        final var actual = revision.toFireTimes(BucketSelection.ALL);
+
+        // Lists, not sets: members come in order of first appearance.
+        assertThat(actual)
+                .extracting(
+                        f -> f.when,
+                        f -> f.count,
+                        f -> List.copyOf(f.expressions))
+                .containsExactlyElementsOf(
+                        expected.stream()
+                                .map(
+                                        f ->
+                                                tuple(
+                                                        f.when,
+                                                        f.count,
+                                                        List.copyOf(
+                                                                f.expressions)))
+                                .collect(Collectors.toList()));
+    }
+}
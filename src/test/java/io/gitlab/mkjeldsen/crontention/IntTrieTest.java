@@ -0,0 +1,78 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class IntTrieTest {
+
+    /** Fixed so a failure reproduces. */
+    private static final long SEED = 0x74726965L;
+
+    private final Random rng = new Random(SEED);
+
+    @Test
+    void agrees_with_sorted_map() {
+        IntTrie<Integer> trie = IntTrie.empty();
+        final var expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 20_000; ++i) {
+            // Small keys share prefixes, large ones mostly do not.
+            final int key =
+                    rng.nextBoolean() ? rng.nextInt(512) : rng.nextInt();
+            if (rng.nextInt(3) == 0) {
+                trie = trie.remove(key);
+                expected.remove(key);
+            } else {
+                trie = trie.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertThat(trie.size()).isEqualTo(expected.size());
+        for (final var entry : expected.entrySet()) {
+            assertThat(trie.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+        final var values = new ArrayList<Integer>();
+        trie.forEachValue(values::add);
+        final var unsigned =
+                new TreeMap<Integer, Integer>(Integer::compareUnsigned);
+        unsigned.putAll(expected);
+        assertThat(values).containsExactlyElementsOf(unsigned.values());
+    }
+
+    @Test
+    void keeps_earlier_versions() {
+        final IntTrie<String> empty = IntTrie.empty();
+        final var one = empty.put(1, "a");
+        final var two = one.put(33, "b");
+        final var changed = two.put(1, "c").remove(33);
+
+        assertThat(empty.get(1)).isNull();
+        assertThat(one.get(33)).isNull();
+        assertThat(two.get(1)).isEqualTo("a");
+        assertThat(two.get(33)).isEqualTo("b");
+        assertThat(changed.get(1)).isEqualTo("c");
+        assertThat(changed.get(33)).isNull();
+        assertThat(changed.size()).isEqualTo(1);
+    }
+
+    @Test
+    void empties_after_removing_everything() {
+        IntTrie<String> trie = IntTrie.empty();
+        for (int key = -64; key < 64; ++key) {
+            trie = trie.put(key * 31, "v");
+        }
+        for (int key = -64; key < 64; ++key) {
+            trie = trie.remove(key * 31);
+        }
+
+        final var values = new ArrayList<String>();
+        trie.forEachValue(values::add);
+        assertThat(trie.size()).isZero();
+        assertThat(trie.get(0)).isNull();
+        assertThat(values).isEmpty();
+    }
+}
@@ -0,0 +1,128 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+final class MinuteHistogramTest {
+
+    private static final Instant SOME_DAY =
+            Instant.parse("2020-03-19T00:00:00Z");
+
+    @Test
+    void yields_fire_times_in_time_order() {
+        final var histogram = new MinuteHistogram();
+        histogram.add(1439, 1, new int[] {0});
+        histogram.add(0, 1, new int[] {0});
+        histogram.add(61, 1, new int[] {0});
+
+        final var fireTimes = histogram.toFireTimes(SOME_DAY, List.of("a"));
+
+        assertThat(fireTimes)
+                .extracting(fireTime -> fireTime.when)
+                .containsExactly(
+                        Instant.parse("2020-03-19T00:00:00Z"),
+                        Instant.parse("2020-03-19T01:01:00Z"),
+                        Instant.parse("2020-03-19T23:59:00Z"));
+    }
+
+    @Test
+    void sums_counts_and_lists_members() {
+        final var histogram = new MinuteHistogram();
+        histogram.add(5, 120, new int[] {0});
+        histogram.add(5, 2, new int[] {1});
+
+        final var fireTimes =
+                histogram.toFireTimes(SOME_DAY, List.of("a", "b"));
+
+        assertThat(fireTimes)
+                .extracting(
+                        fireTime -> fireTime.count,
+                        fireTime -> fireTime.expressions)
+                .containsExactly(tuple(122L, Set.of("a", "b")));
+    }
+
+    @Test
+    void lists_members_in_dictionary_order() {
+        final var histogram = new MinuteHistogram();
+        histogram.add(5, 1, new int[] {2});
+        histogram.add(5, 1, new int[] {0});
+
+        final var fireTimes =
+                histogram.toFireTimes(SOME_DAY, List.of("c", "b", "a"));
+
+        final var expressions = fireTimes.get(0).expressions;
+        assertThat(expressions).containsExactly("c", "a");
+        assertThat(expressions).contains("a").doesNotContain("b");
+        assertThatThrownBy(() -> expressions.add("b"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rolls_up_minutes_into_windows() {
+        final var histogram = new MinuteHistogram();
+        histogram.add(0, 1, new int[] {0});
+        histogram.add(4, 2, new int[] {0});
+        histogram.add(5, 3, new int[] {1});
+        histogram.add(61, 4, new int[] {1});
+
+        final var levels =
+                histogram.toRollups(
+                        SOME_DAY,
+                        List.of("a", "b"),
+                        new int[] {1, 5, 15, 60},
+                        BucketSelection.ALL);
+
+        assertThat(levels).hasSize(4);
+        assertThat(levels.get(0))
+                .extracting(fireTime -> fireTime.count)
+                .containsExactly(1L, 2L, 3L, 4L);
+        assertThat(levels.get(1))
+                .extracting(
+                        fireTime -> fireTime.when,
+                        fireTime -> fireTime.count,
+                        fireTime -> fireTime.expressions)
+                .containsExactly(
+                        tuple(SOME_DAY, 3L, Set.of("a")),
+                        tuple(SOME_DAY.plusSeconds(5 * 60), 3L, Set.of("b")),
+                        tuple(SOME_DAY.plusSeconds(60 * 60), 4L, Set.of("b")));
+        assertThat(levels.get(2))
+                .extracting(fireTime -> fireTime.count)
+                .containsExactly(6L, 4L);
+        assertThat(levels.get(3))
+                .extracting(
+                        fireTime -> fireTime.count,
+                        fireTime -> fireTime.expressions)
+                .containsExactly(
+                        tuple(6L, Set.of("a", "b")), tuple(4L, Set.of("b")));
+    }
+
+    @Test
+    void selects_windows_on_each_level() {
+        final var histogram = new MinuteHistogram();
+        histogram.add(0, 1, new int[] {0});
+        histogram.add(5, 3, new int[] {1});
+        histogram.add(61, 4, new int[] {1});
+
+        final var levels =
+                histogram.toRollups(
+                        SOME_DAY,
+                        List.of("a", "b"),
+                        new int[] {1, 60},
+                        BucketSelection.of(1, 0));
+
+        assertThat(levels.get(0))
+                .extracting(fireTime -> fireTime.count)
+                .containsExactly(4L);
+        assertThat(levels.get(1))
+                .extracting(
+                        fireTime -> fireTime.count,
+                        fireTime -> fireTime.expressions)
+                .containsExactly(tuple(4L, Set.of("a", "b")));
+    }
+}
@@ -0,0 +1,12 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import io.quarkus.test.junit.NativeImageTest;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+@NativeImageTest
+// Not inherited from ContentionLoadTest.
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+final class NativeContentionLoadIT extends ContentionLoadTest {
+
+    // Execute the same load but against the native image.
+}
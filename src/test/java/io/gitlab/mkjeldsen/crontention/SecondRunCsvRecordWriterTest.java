@@ -0,0 +1,21 @@
+package io.gitlab.mkjeldsen.crontention;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.gitlab.mkjeldsen.crontention.csv.ShittyCsv;
+import org.junit.jupiter.api.Test;
+
+final class SecondRunCsvRecordWriterTest {
+
+    @Test
+    void writes_run() {
+        final int someSecondOfDay = 19 * 3600 + 60 + 5;
+
+        final var writer = new SecondRunCsvRecordWriter(someSecondOfDay, 3, 7);
+
+        final var csv = new ShittyCsv(42);
+        csv.record(writer);
+
+        assertThat(csv.toString()).isEqualTo("19:01:05,19,1,5,3,7\n");
+    }
+}
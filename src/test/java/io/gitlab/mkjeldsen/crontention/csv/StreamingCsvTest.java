@@ -0,0 +1,99 @@
+package io.gitlab.mkjeldsen.crontention.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class StreamingCsvTest {
+
+    private final ThreadLocalRandom rng = ThreadLocalRandom.current();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    void writes_header() throws IOException {
+        final var csv = new StreamingCsv(out);
+        csv.header("a", "b", "c");
+        assertThat(written(csv)).isEqualTo("a,b,c\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, -1, 10, 987654321, Long.MAX_VALUE, Long.MIN_VALUE})
+    void writes_long(final long someLong) throws IOException {
+        final var csv = new StreamingCsv(out);
+        csv.record(record -> record.field(someLong));
+        assertThat(written(csv)).isEqualTo(someLong + "\n");
+    }
+
+    @Test
+    void writes_multiple_fields_and_records() throws IOException {
+        final int someInt1 = rng.nextInt();
+        final int someInt2 = rng.nextInt();
+        final Consumer<ShittyCsv.Record> record =
+                r -> {
+                    r.field(someInt1);
+                    r.field("x");
+                    r.quoteField("y");
+                    r.field(someInt2);
+                };
+
+        final var csv = new StreamingCsv(out);
+        csv.record(record);
+        csv.record(record);
+
+        final var expected = new ShittyCsv(0);
+        expected.record(record);
+        expected.record(record);
+        assertThat(written(csv)).isEqualTo(expected.toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases_unsafe_string")
+    void writes_unsafe_string_as_utf8(
+            final String unsafeString, final String expected)
+            throws IOException {
+        final var csv = new StreamingCsv(out);
+        csv.record(record -> record.quoteField(unsafeString));
+        assertThat(written(csv)).isEqualTo(expected);
+    }
+
+    @Test
+    void writes_more_than_buffer_size() throws IOException {
+        final var someLongString = "æ\"€𝄞x".repeat(5000);
+
+        final var csv = new StreamingCsv(out);
+        final var expected = new ShittyCsv(0);
+        for (int i = 0; i < 3; ++i) {
+            csv.record(record -> record.quoteField(someLongString));
+            expected.record(record -> record.quoteField(someLongString));
+        }
+
+        assertThat(written(csv)).isEqualTo(expected.toString());
+    }
+
+    private static Stream<Arguments> cases_unsafe_string() {
+        return Stream.of(
+                Arguments.of("", "\n"),
+                Arguments.of("\"", "\"\"\"\"\n"),
+                Arguments.of("foo\"bar", "\"foo\"\"bar\"\n"),
+                Arguments.of("foo\nbar", "\"foo\nbar\"\n"),
+                Arguments.of("blåbærgrød", "\"blåbærgrød\"\n"),
+                Arguments.of("€ 𝄞", "\"€ 𝄞\"\n"),
+                Arguments.of("\uD800x", "\"?x\"\n"));
+    }
+
+    private String written(final StreamingCsv csv) throws IOException {
+        csv.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}